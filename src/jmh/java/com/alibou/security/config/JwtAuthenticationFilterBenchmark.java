@@ -0,0 +1,85 @@
+package com.alibou.security.config;
+
+import com.alibou.security.audit.AuditLog;
+import com.alibou.security.token.RevocationStore;
+import com.alibou.security.token.TokenDenylist;
+import com.alibou.security.user.Role;
+import com.alibou.security.user.SecurityUser;
+import com.alibou.security.user.SecurityVersionRegistry;
+import com.alibou.security.user.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Полный проход {@link JwtAuthenticationFilter} для запроса с cookie токена.
+ * Пользователь отдается из памяти, поэтому замеряется только работа самого фильтра.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "K38WZTfWhc8GA9scUTOmuhTUewpgdgMD9usj8Qk81ItmBRSTYGt6iFApr8E/zFvH";
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        UserPrincipal user = UserPrincipal.of(SecurityUser.builder()
+                .id(1)
+                .email("user@mail.com")
+                .password("password")
+                .roles(Set.of(Role.USER))
+                .build());
+        JwtService jwtService = new JwtService(new JwtKeyRing(SECRET, new JwtKeyProperties()),
+                Duration.ofMinutes(15), 10_000);
+        String token = jwtService.generateAccessToken(user);
+
+        filter = new JwtAuthenticationFilter(
+                jwtService,
+                username -> user,
+                new SecurityVersionRegistry(Duration.ofMinutes(15), 10_000),
+                new TokenDenylist(mock(RevocationStore.class), 10_000),
+                new AuthenticationMetrics(new SimpleMeterRegistry()),
+                mock(AuditLog.class));
+        ReflectionTestUtils.setField(filter, "stateless", stateless);
+
+        request = new MockHttpServletRequest("GET", "/demo-controller");
+        request.setCookies(new Cookie("token", token));
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object doFilterInternal() throws ServletException, IOException {
+        try {
+            filter.doFilterInternal(request, response, NO_OP_CHAIN);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.alibou.security.config;
+
+import com.alibou.security.user.Role;
+import com.alibou.security.user.SecurityUser;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск токена и проверки, которые выполняются на каждом запросе.
+ * Запуск с профилировщиком -prof gc показывает аллокации на операцию.
+ * <p>
+ * Методы *CacheHit проверяют один и тот же токен и измеряют попадание в кэш проверенных токенов
+ * {@link JwtService} - повторные запросы с тем же токеном. Методы *Cold проверяют токены
+ * из пула {@code coldTokens} разных токенов сервисом без кэша: каждая проверка - разбор
+ * и проверка подписи, как для первого запроса с новым токеном.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "K38WZTfWhc8GA9scUTOmuhTUewpgdgMD9usj8Qk81ItmBRSTYGt6iFApr8E/zFvH";
+
+    @Param({"1024"})
+    public int coldTokens;
+
+    private JwtService jwtService;
+    private JwtService uncachedJwtService;
+    private SecurityUser user;
+    private Map<String, Object> claims;
+    private String token;
+    private SecurityUser[] coldUsers;
+    private String[] coldTokenPool;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, new JwtKeyProperties());
+        jwtService = new JwtService(keyRing, Duration.ofMinutes(15), 10_000);
+        // Кэш нулевого размера: проверенный токен вытесняется сразу, а пул не повторяет токен
+        // раньше чем через coldTokens проверок
+        uncachedJwtService = new JwtService(keyRing, Duration.ofMinutes(15), 0);
+        user = user("user@mail.com");
+        claims = Map.of(JwtService.ROLES_CLAIM, List.of(Role.USER.name()), JwtService.VERSION_CLAIM, 0);
+        token = jwtService.generateToken(new HashMap<>(claims), user);
+
+        // Токены разных пользователей, чтобы не совпадали даже выпущенные в одну секунду
+        coldUsers = new SecurityUser[coldTokens];
+        coldTokenPool = new String[coldTokens];
+        for (int i = 0; i < coldTokens; i++) {
+            coldUsers[i] = user("user" + i + "@mail.com");
+            coldTokenPool[i] = jwtService.generateToken(new HashMap<>(claims), coldUsers[i]);
+        }
+    }
+
+    private static SecurityUser user(String email) {
+        return SecurityUser.builder()
+                .id(1)
+                .email(email)
+                .password("password")
+                .roles(Set.of(Role.USER))
+                .build();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        // jjwt изменяет переданную карту claims, поэтому на каждый вызов нужна новая
+        return jwtService.generateToken(new HashMap<>(claims), user);
+    }
+
+    @Benchmark
+    public String extractUsernameCacheHit() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public Boolean isTokenValidCacheHit() {
+        return jwtService.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public String extractUsernameCold() {
+        return uncachedJwtService.extractUsername(coldTokenPool[nextIndex()]);
+    }
+
+    @Benchmark
+    public Boolean isTokenValidCold() {
+        int index = nextIndex();
+        return uncachedJwtService.isTokenValid(coldTokenPool[index], coldUsers[index]);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == coldTokens ? 0 : index + 1;
+        return index;
+    }
+}
@@ -0,0 +1,86 @@
+package com.alibou.security.config;
+
+import com.alibou.security.SecurityApplication;
+import com.alibou.security.auth.AuthCookies;
+import com.alibou.security.user.UserPrincipal;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проход запроса с cookie токена через цепочки безопасности приложения (springSecurityFilterChain).
+ * <p>
+ * Открытые пути (login-page, demo-controller) обслуживает облегченная цепочка без разбора токена;
+ * страница приветствия тоже открыта, но идет через полную цепочку с фильтром JWT, как раньше все
+ * открытые пути; with-auth - защищенный путь. Разница между ними - экономия на каждом запросе к открытой странице.
+ * Контекст поднимается в профиле loadtest на H2 с одним пользователем.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityFilterChainBenchmark {
+
+    @Param({"/api/v1/auth2/login-page", "/api/v1/demo-controller", "/api/v1/greeting-controller",
+            "/api/v1/demo-controller/with-auth"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+    private ServletContext servletContext;
+    private Filter springSecurityFilterChain;
+    private Cookie tokenCookie;
+    private Authentication seen;
+
+    private final FilterChain capturingChain = (request, response) ->
+            seen = SecurityContextHolder.getContext().getAuthentication();
+
+    @Setup
+    public void setUp() throws ServletException, IOException {
+        context = new SpringApplicationBuilder(SecurityApplication.class)
+                .profiles("loadtest")
+                .properties("server.port=0", "loadtest.seed.users=1", "logging.level.root=warn")
+                .run();
+        // Цепочки ищут контекст приложения через ServletContext запроса
+        servletContext = ((WebApplicationContext) context).getServletContext();
+        springSecurityFilterChain = context.getBean("springSecurityFilterChain", Filter.class);
+        UserPrincipal user = (UserPrincipal) context.getBean(UserDetailsService.class)
+                .loadUserByUsername("user0@loadtest.local");
+        tokenCookie = new Cookie(AuthCookies.ACCESS_TOKEN,
+                context.getBean(JwtService.class).generateAccessToken(user));
+
+        // Защищенный путь должен пройти с аутентификацией, иначе замер ничего не показывает
+        if (path.endsWith("/with-auth") && filter() == null) {
+            throw new IllegalStateException("Token was not accepted on " + path);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object filter() throws ServletException, IOException {
+        seen = null;
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", path);
+        request.setCookies(tokenCookie);
+        springSecurityFilterChain.doFilter(request, new MockHttpServletResponse(), capturingChain);
+        return seen;
+    }
+}
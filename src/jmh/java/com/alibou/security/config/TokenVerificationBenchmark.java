@@ -0,0 +1,93 @@
+package com.alibou.security.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение проверки токена через jjwt (прежний путь, исключения на ошибках)
+ * и через {@link JwsTokenVerifier}. Запуск с профилировщиком -prof gc показывает аллокации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenVerificationBenchmark {
+
+    private static final String SECRET = "K38WZTfWhc8GA9scUTOmuhTUewpgdgMD9usj8Qk81ItmBRSTYGt6iFApr8E/zFvH";
+
+    private JwsTokenVerifier verifier;
+    private String validToken;
+    private String expiredToken;
+    private String tamperedToken;
+
+    @Setup
+    public void setUp() {
+        verifier = new JwsTokenVerifier(new JwtKeyRing(SECRET, new JwtKeyProperties()));
+        validToken = token(System.currentTimeMillis() + 1000 * 60 * 60 * 10);
+        expiredToken = token(System.currentTimeMillis() - 1000 * 60);
+        tamperedToken = validToken.substring(0, validToken.length() - 4) + "AAAA";
+    }
+
+    private static String token(long expiresAt) {
+        return Jwts.builder()
+                .setClaims(new HashMap<>(Map.of("roles", List.of("USER"), "ver", 0)))
+                .setSubject("user@mail.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(expiresAt))
+                .signWith(SignatureAlgorithm.HS256, SECRET)
+                .compact();
+    }
+
+    @Benchmark
+    public Object jjwtValid() {
+        return parse(validToken);
+    }
+
+    @Benchmark
+    public Object jjwtExpired() {
+        return parse(expiredToken);
+    }
+
+    @Benchmark
+    public Object jjwtTampered() {
+        return parse(tamperedToken);
+    }
+
+    @Benchmark
+    public TokenVerification verifierValid() {
+        return verifier.verify(validToken);
+    }
+
+    @Benchmark
+    public TokenVerification verifierExpired() {
+        return verifier.verify(expiredToken);
+    }
+
+    @Benchmark
+    public TokenVerification verifierTampered() {
+        return verifier.verify(tamperedToken);
+    }
+
+    private static Object parse(String token) {
+        try {
+            Claims claims = Jwts.parser()
+                    .setSigningKey(SECRET)
+                    .parseClaimsJws(token)
+                    .getBody();
+            return claims;
+        } catch (JwtException e) {
+            return e;
+        }
+    }
+}
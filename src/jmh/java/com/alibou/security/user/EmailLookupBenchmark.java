@@ -0,0 +1,139 @@
+package com.alibou.security.user;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск пользователя по email - запрос {@link UserRepository#findByEmail(String)}, который выполняется
+ * при каждом входе и при каждом промахе кэша пользователей, - на таблице из {@code users} пользователей.
+ * <p>
+ * {@code schema=2} - схема до миграции V3, без индекса по email; {@code schema=3} - с уникальным индексом.
+ * Схема создается теми же миграциями Flyway, что и у приложения, затем таблица заполняется
+ * пользователями user{N}@loadtest.local с одной ролью. Ищутся случайные существующие
+ * и случайные отсутствующие email (вход с неверным адресом).
+ * <p>
+ * По умолчанию - встроенная H2 в режиме PostgreSQL. Локальный Postgres (база очищается!):
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="EmailLookupBenchmark
+ * -p jdbcUrl=jdbc:postgresql://localhost:5432/email_lookup -p username=postgres -p password=123"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailLookupBenchmark {
+
+    // Тот же запрос, что строит Hibernate для findByEmail с @EntityGraph ролей
+    private static final String FIND_BY_EMAIL_SQL = "select u.id, u.email, u.firstname, u.lastname, u.password, "
+            + "u.security_version, r.user_id, r.roles from security_users u "
+            + "left join user_role r on u.id = r.user_id where u.email = ?";
+    private static final String INSERT_USER_SQL = "insert into security_users "
+            + "(id, firstname, lastname, email, password, security_version) values (?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_ROLE_SQL = "insert into user_role (user_id, roles) values (?, 'USER')";
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"2", "3"})
+    public String schema;
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"jdbc:h2:mem:email_lookup;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"})
+    public String jdbcUrl;
+
+    @Param({"sa"})
+    public String username;
+
+    @Param({""})
+    public String password;
+
+    private Connection connection;
+    private PreparedStatement findByEmail;
+
+    @Setup
+    public void setUp() throws SQLException {
+        Flyway flyway = Flyway.configure()
+                .dataSource(jdbcUrl, username, password)
+                .cleanDisabled(false)
+                .target(schema)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        connection = DriverManager.getConnection(jdbcUrl, username, password);
+        long startedAt = System.nanoTime();
+        seed();
+        System.out.printf("%nSeeded %d users in %d ms%n", users, (System.nanoTime() - startedAt) / 1_000_000);
+        findByEmail = connection.prepareStatement(FIND_BY_EMAIL_SQL);
+    }
+
+    private void seed() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement insertUser = connection.prepareStatement(INSERT_USER_SQL);
+             PreparedStatement insertRole = connection.prepareStatement(INSERT_ROLE_SQL)) {
+            for (int i = 0; i < users; i++) {
+                insertUser.setInt(1, i + 1);
+                insertUser.setString(2, "User");
+                insertUser.setString(3, String.valueOf(i));
+                insertUser.setString(4, email(i));
+                insertUser.setString(5, "{bcrypt}$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3Xg2Dx1HK3AmJkZfRQ6YRCi");
+                insertUser.addBatch();
+                insertRole.setInt(1, i + 1);
+                insertRole.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == users - 1) {
+                    insertUser.executeBatch();
+                    insertRole.executeBatch();
+                    connection.commit();
+                }
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        // Статистика планировщика, как после autovacuum на рабочей базе
+        if (jdbcUrl.startsWith("jdbc:postgresql:")) {
+            try (PreparedStatement analyze = connection.prepareStatement("analyze security_users, user_role")) {
+                analyze.execute();
+            }
+        }
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@loadtest.local";
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int existingEmail() throws SQLException {
+        return find(email(ThreadLocalRandom.current().nextInt(users)));
+    }
+
+    @Benchmark
+    public int missingEmail() throws SQLException {
+        // Email каждый раз другой: H2 повторно отдает результат того же запроса с теми же параметрами из кэша
+        return find(email(users + ThreadLocalRandom.current().nextInt(users)));
+    }
+
+    private int find(String email) throws SQLException {
+        findByEmail.setString(1, email);
+        int rows = 0;
+        try (ResultSet resultSet = findByEmail.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
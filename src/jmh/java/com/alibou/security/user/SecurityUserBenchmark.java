@@ -0,0 +1,50 @@
+package com.alibou.security.user;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение списка полномочий пользователя, которое выполняется на каждом аутентифицированном запросе:
+ * сущность {@link SecurityUser} и компактный {@link UserPrincipal}, хранимый в кэше и SecurityContext.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityUserBenchmark {
+
+    private SecurityUser user;
+    private UserPrincipal principal;
+
+    @Setup
+    public void setUp() {
+        user = SecurityUser.builder()
+                .id(1)
+                .email("user@mail.com")
+                .password("password")
+                .roles(Set.of(Role.USER, Role.ADMIN))
+                .build();
+        principal = UserPrincipal.of(user);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return user.getAuthorities();
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> principalGetAuthorities() {
+        return principal.getAuthorities();
+    }
+
+    @Benchmark
+    public UserPrincipal principalOf() {
+        return UserPrincipal.of(user);
+    }
+}
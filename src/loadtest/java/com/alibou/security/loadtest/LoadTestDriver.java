@@ -0,0 +1,430 @@
+package com.alibou.security.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Нагрузочный драйвер для приложения, запущенного в профиле loadtest.
+ * <p>
+ * Сначала входит под частью засеянных пользователей и запоминает их токены, затем
+ * несколько потоков отправляют запросы в заданной пропорции. После прогрева для каждой
+ * точки входа выводятся пропускная способность, число ошибок и задержки p50/p95/p99.
+ * <p>
+ * Токен доступа живет недолго, поэтому фоновый поток обновляет токены сессий через /refresh-token
+ * за --refresh-before до истечения (если refresh-токен не принят - входит заново). Иначе в длинном
+ * прогоне запросы с истекшими токенами получали бы быстрый отказ и завышали пропускную способность.
+ * Обновления в замер не входят.
+ * <p>
+ * Параметры передаются как --имя=значение:
+ * <pre>
+ * --base-url=http://localhost:8080  --threads=32  --warmup=10s  --duration=60s
+ * --users=10000  --sessions=200  --password=password  --refresh-before=60s
+ * --mix=register:1,authenticate:9,with-auth:45,index:45
+ * --concurrency=50,200,800
+ * </pre>
+ * С --concurrency прогрев и замер повторяются для каждого числа параллельных клиентов (вместо --threads):
+ * так сравниваются режимы платформенных и виртуальных потоков сервера - при каком числе клиентов
+ * перестает расти пропускная способность и начинают расти задержки.
+ */
+public final class LoadTestDriver {
+
+    /**
+     * Точки входа, участвующие в нагрузке.
+     */
+    enum Endpoint {
+        REGISTER("register"),
+        AUTHENTICATE("authenticate"),
+        WITH_AUTH("with-auth"),
+        INDEX("index");
+
+        private final String key;
+
+        Endpoint(String key) {
+            this.key = key;
+        }
+
+        static Endpoint of(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key.equals(key)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint in mix: " + key);
+        }
+    }
+
+    // Срок действия из тела JWT
+    private static final Pattern EXP_CLAIM = Pattern.compile("\"exp\"\\s*:\\s*(\\d+)");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String baseUrl;
+    private final List<Integer> concurrencyLevels;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int users;
+    private final int sessions;
+    private final String password;
+    private final Endpoint[] weightedEndpoints;
+    private final Duration refreshBefore;
+
+    private List<Session> sessionPool;
+
+    private LoadTestDriver(Map<String, String> options) {
+        this.baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        this.concurrencyLevels = Arrays.stream(options.getOrDefault("concurrency", options.getOrDefault("threads", "32"))
+                        .split(","))
+                .map(level -> Integer.parseInt(level.trim()))
+                .toList();
+        this.warmup = parseDuration(options.getOrDefault("warmup", "10s"));
+        this.duration = parseDuration(options.getOrDefault("duration", "60s"));
+        this.users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        this.sessions = Integer.parseInt(options.getOrDefault("sessions", "200"));
+        this.password = options.getOrDefault("password", "password");
+        this.weightedEndpoints = parseMix(options.getOrDefault("mix",
+                "register:1,authenticate:9,with-auth:45,index:45"));
+        this.refreshBefore = parseDuration(options.getOrDefault("refresh-before", "60s"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        new LoadTestDriver(options).run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Logging in %d sessions against %s%n", sessions, baseUrl);
+        sessionPool = login();
+
+        ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshExpiring, 1, 1, TimeUnit.SECONDS);
+        try {
+            for (int threads : concurrencyLevels) {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                try {
+                    System.out.printf("%nWarming up for %ds with %d threads%n", warmup.toSeconds(), threads);
+                    runPhase(executor, threads, warmup);
+                    System.out.printf("Measuring for %ds%n", duration.toSeconds());
+                    Map<Endpoint, Recorder> results = runPhase(executor, threads, duration);
+                    report(results);
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } finally {
+            refresher.shutdownNow();
+        }
+    }
+
+    private List<Session> login() throws IOException, InterruptedException {
+        List<Session> loggedIn = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            String email = "user" + ThreadLocalRandom.current().nextInt(users) + "@loadtest.local";
+            Session session = new Session(email);
+            if (!session.login()) {
+                throw new IllegalStateException("Login of " + email
+                        + " failed; is the application running with the loadtest profile?");
+            }
+            loggedIn.add(session);
+        }
+        return loggedIn;
+    }
+
+    /**
+     * Обновляет токены сессий, срок которых истекает в пределах --refresh-before.
+     */
+    private void refreshExpiring() {
+        Instant threshold = Instant.now().plus(refreshBefore);
+        for (Session session : sessionPool) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (session.credentials.expiresAt().isBefore(threshold)) {
+                try {
+                    if (!session.refresh() && !session.login()) {
+                        System.err.printf("Could not renew the session of %s%n", session.email);
+                    }
+                } catch (IOException e) {
+                    System.err.printf("Could not renew the session of %s: %s%n", session.email, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Выполняет фазу нагрузки и возвращает объединенные результаты всех потоков.
+     */
+    private Map<Endpoint, Recorder> runPhase(ExecutorService executor, int threads, Duration phase) throws Exception {
+        long deadline = System.nanoTime() + phase.toNanos();
+        List<Future<Map<Endpoint, Recorder>>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> worker(deadline)));
+        }
+        Map<Endpoint, Recorder> merged = new EnumMap<>(Endpoint.class);
+        for (Future<Map<Endpoint, Recorder>> future : futures) {
+            future.get().forEach((endpoint, recorder) ->
+                    merged.computeIfAbsent(endpoint, key -> new Recorder()).addAll(recorder));
+        }
+        merged.values().forEach(recorder -> recorder.elapsedNanos = phase.toNanos());
+        return merged;
+    }
+
+    private Map<Endpoint, Recorder> worker(long deadline) {
+        Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            Endpoint endpoint = weightedEndpoints[random.nextInt(weightedEndpoints.length)];
+            Recorder recorder = recorders.computeIfAbsent(endpoint, key -> new Recorder());
+            HttpRequest request = request(endpoint, random);
+            long startedAt = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                recorder.record(System.nanoTime() - startedAt, response.statusCode() / 100 == 2);
+            } catch (IOException e) {
+                recorder.record(System.nanoTime() - startedAt, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return recorders;
+    }
+
+    private HttpRequest request(Endpoint endpoint, ThreadLocalRandom random) {
+        return switch (endpoint) {
+            case REGISTER -> json("/api/v1/auth/register", """
+                    {"firstname":"Load","lastname":"Test","email":"%s","password":"%s"}"""
+                    .formatted("lt-" + UUID.randomUUID() + "@loadtest.local", password));
+            case AUTHENTICATE -> authenticateRequest("user" + random.nextInt(users) + "@loadtest.local");
+            case WITH_AUTH -> withToken("/api/v1/demo-controller/with-auth", random);
+            case INDEX -> withToken("/api/v1/index-controller/index", random);
+        };
+    }
+
+    // Контроллер входа принимает параметры формы, а не JSON
+    private HttpRequest authenticateRequest(String email) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/authenticate"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("email=" + encode(email) + "&password=" + encode(password)))
+                .build();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private HttpRequest json(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest withToken(String path, ThreadLocalRandom random) {
+        Session session = sessionPool.get(random.nextInt(sessionPool.size()));
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Cookie", "token=" + session.credentials.accessToken())
+                .GET()
+                .build();
+    }
+
+    private static String cookie(HttpResponse<?> response, String name) {
+        for (String header : response.headers().allValues("Set-Cookie")) {
+            if (header.startsWith(name + "=")) {
+                int end = header.indexOf(';');
+                return header.substring(name.length() + 1, end < 0 ? header.length() : end);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Время истечения токена доступа из claim exp; подпись не проверяется.
+     */
+    private static Instant expiresAt(String accessToken) {
+        String[] parts = accessToken.split("\\.");
+        if (parts.length == 3) {
+            Matcher matcher = EXP_CLAIM.matcher(
+                    new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8));
+            if (matcher.find()) {
+                return Instant.ofEpochSecond(Long.parseLong(matcher.group(1)));
+            }
+        }
+        // Срок неизвестен - обновлять при каждой проверке
+        return Instant.EPOCH;
+    }
+
+    private static void report(Map<Endpoint, Recorder> results) {
+        System.out.printf("%n%-14s %10s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        long totalRequests = 0;
+        double totalThroughput = 0;
+        for (Map.Entry<Endpoint, Recorder> entry : results.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] latencies = recorder.sorted();
+            double throughput = recorder.count * 1e9 / recorder.elapsedNanos;
+            System.out.printf("%-14s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey().key, recorder.count, recorder.errors, throughput,
+                    percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                    percentile(latencies, 1.0));
+            totalRequests += recorder.count;
+            totalThroughput += throughput;
+        }
+        System.out.printf("%-14s %10d %8s %10.1f%n", "total", totalRequests, "", totalThroughput);
+    }
+
+    private static double percentile(long[] sortedLatencies, double quantile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static Endpoint[] parseMix(String mix) {
+        List<Endpoint> weighted = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] keyAndWeight = part.trim().split(":");
+            Endpoint endpoint = Endpoint.of(keyAndWeight[0]);
+            int weight = Integer.parseInt(keyAndWeight[1]);
+            for (int i = 0; i < weight; i++) {
+                weighted.add(endpoint);
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Mix has no endpoints: " + mix);
+        }
+        return weighted.toArray(Endpoint[]::new);
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.parse(value);
+    }
+
+    /**
+     * Токены сессии и время истечения токена доступа.
+     */
+    private record Credentials(String accessToken, String refreshToken, Instant expiresAt) {
+    }
+
+    /**
+     * Вошедший пользователь. Токены заменяет поток обновления, рабочие потоки только читают их.
+     */
+    private final class Session {
+
+        private final String email;
+        private volatile Credentials credentials;
+
+        Session(String email) {
+            this.email = email;
+        }
+
+        boolean login() throws IOException, InterruptedException {
+            return accept(client.send(authenticateRequest(email), HttpResponse.BodyHandlers.discarding()));
+        }
+
+        boolean refresh() throws IOException, InterruptedException {
+            if (credentials.refreshToken() == null) {
+                return false;
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/refresh-token"))
+                    .header("Cookie", "refresh_token=" + credentials.refreshToken())
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            return accept(client.send(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        private boolean accept(HttpResponse<?> response) {
+            String accessToken = cookie(response, "token");
+            if (response.statusCode() != 200 || accessToken == null) {
+                return false;
+            }
+            credentials = new Credentials(accessToken, cookie(response, "refresh_token"), expiresAt(accessToken));
+            return true;
+        }
+    }
+
+    /**
+     * Задержки одного потока для одной точки входа; без синхронизации, объединяются после фазы.
+     */
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private long elapsedNanos;
+
+        void record(long latencyNanos, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        void addAll(Recorder other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
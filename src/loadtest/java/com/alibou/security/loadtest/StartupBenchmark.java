@@ -0,0 +1,283 @@
+package com.alibou.security.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Замер времени запуска сборки mvn -Pproduction,cds package: от старта JVM до первого успешного
+ * аутентифицированного запроса (вход и затем запрос с полученным токеном).
+ * <p>
+ * Приложение запускается отдельным процессом по очереди в каждом варианте, так что медленный дрейф
+ * машины делится между вариантами поровну. Первые прогоны каждого варианта не учитываются (прогрев
+ * файлового кэша). Для каждого варианта выводятся min/медиана/max времени до первого запроса
+ * и медиана времени запуска контекста из лога Spring Boot.
+ * <p>
+ * Параметры передаются как --имя=значение:
+ * <pre>
+ * --jar=target/production/security-0.0.1-SNAPSHOT-production.jar  --variants=jit,aot,aot-cds
+ * --runs=5  --warmup-runs=1  --timeout=120s  --base-url=http://localhost:8080
+ * --jvm-args="-Xmx512m"  --app-args="--spring.profiles.active=production"
+ * --email=user0@loadtest.local  --password=password
+ * </pre>
+ * На H2 без Postgres сборка и замер выполняются с профилем loadtest:
+ * mvn -Pproduction,cds,loadtest package -Dproduction.profiles=production,loadtest,
+ * затем --app-args="--spring.profiles.active=production,loadtest --loadtest.seed.users=1".
+ */
+public final class StartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    /**
+     * Варианты запуска одного и того же jar.
+     */
+    enum Variant {
+        JIT("jit"),
+        AOT("aot", "-Dspring.aot.enabled=true"),
+        AOT_CDS("aot-cds", "-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=application.jsa");
+
+        private final String key;
+        private final List<String> jvmArgs;
+
+        Variant(String key, String... jvmArgs) {
+            this.key = key;
+            this.jvmArgs = List.of(jvmArgs);
+        }
+
+        static Variant of(String key) {
+            for (Variant variant : values()) {
+                if (variant.key.equals(key)) {
+                    return variant;
+                }
+            }
+            throw new IllegalArgumentException("Unknown startup variant: " + key);
+        }
+    }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    private final Path jar;
+    private final List<Variant> variants;
+    private final int runs;
+    private final int warmupRuns;
+    private final Duration timeout;
+    private final String baseUrl;
+    private final List<String> jvmArgs;
+    private final List<String> appArgs;
+    private final String email;
+    private final String password;
+
+    private StartupBenchmark(Map<String, String> options) {
+        this.jar = Path.of(options.getOrDefault("jar", "target/production/security-0.0.1-SNAPSHOT-production.jar"))
+                .toAbsolutePath();
+        this.variants = Arrays.stream(options.getOrDefault("variants", "jit,aot,aot-cds").split(","))
+                .map(key -> Variant.of(key.trim()))
+                .toList();
+        this.runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        this.warmupRuns = Integer.parseInt(options.getOrDefault("warmup-runs", "1"));
+        this.timeout = parseDuration(options.getOrDefault("timeout", "120s"));
+        this.baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        this.jvmArgs = split(options.getOrDefault("jvm-args", ""));
+        this.appArgs = split(options.getOrDefault("app-args", "--spring.profiles.active=production"));
+        this.email = options.getOrDefault("email", "user0@loadtest.local");
+        this.password = options.getOrDefault("password", "password");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        new StartupBenchmark(options).run();
+    }
+
+    private void run() throws Exception {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("No " + jar + "; build it with mvn -Pproduction package");
+        }
+        if (variants.contains(Variant.AOT_CDS) && !Files.isRegularFile(jar.resolveSibling("application.jsa"))) {
+            throw new IllegalStateException("No CDS archive next to " + jar + "; build it with mvn -Pproduction,cds package");
+        }
+        Map<Variant, Samples> results = new LinkedHashMap<>();
+        variants.forEach(variant -> results.put(variant, new Samples()));
+        for (int run = 0; run < warmupRuns + runs; run++) {
+            boolean warmup = run < warmupRuns;
+            for (Variant variant : variants) {
+                Sample sample = measure(variant);
+                System.out.printf("%-8s %-7s first authenticated request %7.0f ms, context started %7.0f ms%n",
+                        warmup ? "warmup" : "run " + (run - warmupRuns + 1), variant.key,
+                        sample.firstRequestMillis, sample.contextStartedMillis);
+                if (!warmup) {
+                    results.get(variant).add(sample);
+                }
+            }
+        }
+        report(results);
+    }
+
+    /**
+     * Запускает приложение, ждет первого успешного аутентифицированного запроса и останавливает процесс.
+     */
+    private Sample measure(Variant variant) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(variant.jvmArgs);
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(jar.getFileName().toString());
+        command.addAll(appArgs);
+        Path log = jar.resolveSibling("startup-benchmark.log");
+
+        long startedAt = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(jar.getParent().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long firstRequestNanos = awaitAuthenticatedRequest(process, startedAt, log) - startedAt;
+            return new Sample(firstRequestNanos / 1_000_000.0, contextStartedMillis(log));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Повторяет вход и запрос с токеном, пока оба не вернут 200; соединение отклоняется, пока сервер не запущен.
+     *
+     * @return System.nanoTime() получения успешного ответа
+     */
+    private long awaitAuthenticatedRequest(Process process, long startedAt, Path log) throws InterruptedException {
+        long deadline = startedAt + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + process.exitValue() + ", see " + log);
+            }
+            try {
+                HttpResponse<Void> login = client.send(authenticateRequest(), HttpResponse.BodyHandlers.discarding());
+                String token = tokenCookie(login);
+                if (login.statusCode() == 200 && token != null) {
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(
+                                    URI.create(baseUrl + "/api/v1/demo-controller/with-auth"))
+                            .header("Cookie", "token=" + token)
+                            .GET()
+                            .build(), HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        return System.nanoTime();
+                    }
+                }
+            } catch (IOException e) {
+                // Сервер еще не слушает порт
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("No authenticated response within " + timeout + ", see " + log);
+    }
+
+    // Контроллер входа принимает параметры формы, а не JSON
+    private HttpRequest authenticateRequest() {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/authenticate"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("email=" + encode(email) + "&password=" + encode(password)))
+                .build();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String tokenCookie(HttpResponse<?> response) {
+        for (String header : response.headers().allValues("Set-Cookie")) {
+            if (header.startsWith("token=")) {
+                int end = header.indexOf(';');
+                return header.substring("token=".length(), end < 0 ? header.length() : end);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Время запуска контекста из строки "Started ... in N seconds"; NaN, если строки нет.
+     */
+    private static double contextStartedMillis(Path log) throws IOException {
+        Matcher matcher = STARTED.matcher(Files.readString(log));
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) * 1000 : Double.NaN;
+    }
+
+    private static void report(Map<Variant, Samples> results) {
+        System.out.printf("%n%-8s %5s %9s %9s %9s %12s%n",
+                "variant", "runs", "min ms", "p50 ms", "max ms", "context ms");
+        results.forEach((variant, samples) -> {
+            double[] firstRequest = samples.sorted(Sample::firstRequestMillis);
+            double[] contextStarted = samples.sorted(Sample::contextStartedMillis);
+            System.out.printf("%-8s %5d %9.0f %9.0f %9.0f %12.0f%n", variant.key, firstRequest.length,
+                    firstRequest[0], median(firstRequest), firstRequest[firstRequest.length - 1],
+                    median(contextStarted));
+        });
+    }
+
+    private static double median(double[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static List<String> split(String args) {
+        return args.isBlank() ? List.of() : List.of(args.trim().split("\\s+"));
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.parse(value);
+    }
+
+    private record Sample(double firstRequestMillis, double contextStartedMillis) {
+    }
+
+    private static final class Samples {
+
+        private final List<Sample> samples = new ArrayList<>();
+
+        void add(Sample sample) {
+            samples.add(sample);
+        }
+
+        double[] sorted(ToDoubleFunction<Sample> metric) {
+            return samples.stream().mapToDouble(metric).sorted().toArray();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.alibou.security.audit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Просмотр журнала аудита администратором. Записи отдаются от новых к старым; следующая страница
+ * запрашивается с {@code before} = наименьший id предыдущей.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/api/v1/admin/audit-events")
+@RequiredArgsConstructor
+public class AuditController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final AuditRecordRepository repository;
+
+    @GetMapping
+    public ResponseEntity<List<AuditRecord>> search(
+            @RequestParam(required = false) String principal,
+            @RequestParam(required = false) AuditEventType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(repository.search(principal, type, from, to, before,
+                Limit.of(Math.max(1, Math.min(limit, MAX_LIMIT)))));
+    }
+}
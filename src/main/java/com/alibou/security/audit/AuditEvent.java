@@ -0,0 +1,13 @@
+package com.alibou.security.audit;
+
+/**
+ * Событие аудита до записи в базу.
+ *
+ * @param occurredAt    время события, мс от начала эпохи
+ * @param type          вид события
+ * @param principal     email пользователя или null, если он неизвестен
+ * @param clientAddress адрес клиента или null
+ * @param detail        причина отказа или null
+ */
+record AuditEvent(long occurredAt, AuditEventType type, String principal, String clientAddress, String detail) {
+}
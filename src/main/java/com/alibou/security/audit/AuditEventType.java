@@ -0,0 +1,16 @@
+package com.alibou.security.audit;
+
+/**
+ * Виды событий журнала аудита аутентификации.
+ */
+public enum AuditEventType {
+    REGISTERED,
+    LOGIN_SUCCEEDED,
+    LOGIN_FAILED,
+    // Попытка входа отклонена ограничением частоты до проверки пароля
+    LOGIN_THROTTLED,
+    TOKEN_REFRESHED,
+    REFRESH_REJECTED,
+    // Фильтр JWT не принял токен доступа; причина - исход проверки
+    TOKEN_REJECTED
+}
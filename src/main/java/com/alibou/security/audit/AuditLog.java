@@ -0,0 +1,167 @@
+package com.alibou.security.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Журнал аудита аутентификации.
+ * <p>
+ * Поток запроса только кладет событие в {@link AuditRingBuffer}: без блокировок, ожидания и обращения к базе.
+ * Фоновый поток раз в {@code auth.audit.flush-interval} забирает события и записывает их JDBC-пакетами.
+ * Если база не успевает и буфер заполнен, новые события отбрасываются и учитываются в метрике
+ * {@code auth.audit.events{result=dropped}}: аудит не должен замедлять вход.
+ * Записи старше {@code auth.audit.retention} удаляются тем же потоком.
+ */
+@Slf4j
+@Component
+public class AuditLog {
+
+    private static final String INSERT_SQL = "insert into auth_audit_events "
+            + "(occurred_at, type, principal, client_address, detail) values (?, ?, ?, ?, ?)";
+    private static final String PURGE_SQL = "delete from auth_audit_events where occurred_at < ?";
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final int MAX_ADDRESS_LENGTH = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration retention;
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService executor;
+    private final Counter recordedCounter;
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    public AuditLog(JdbcTemplate jdbcTemplate,
+                    MeterRegistry meterRegistry,
+                    @Value("${auth.audit.enabled:true}") boolean enabled,
+                    @Value("${auth.audit.buffer-capacity:65536}") int bufferCapacity,
+                    @Value("${auth.audit.batch-size:500}") int batchSize,
+                    @Value("${auth.audit.flush-interval:200ms}") Duration flushInterval,
+                    @Value("${auth.audit.retention:90d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.buffer = new AuditRingBuffer<>(bufferCapacity);
+        this.recordedCounter = eventCounter(meterRegistry, "recorded");
+        this.droppedCounter = eventCounter(meterRegistry, "dropped");
+        this.writtenCounter = eventCounter(meterRegistry, "written");
+        this.failedCounter = eventCounter(meterRegistry, "failed");
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            long interval = flushInterval.toMillis();
+            executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+            executor.scheduleWithFixedDelay(this::purgeQuietly, 1, 60, TimeUnit.MINUTES);
+        }
+    }
+
+    private static Counter eventCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.audit.events")
+                .description("Authentication audit events by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит событие в очередь на запись. Не блокирует поток: при полном буфере событие отбрасывается.
+     *
+     * @param type          вид события
+     * @param principal     email пользователя или null
+     * @param clientAddress адрес клиента или null
+     * @param detail        причина отказа или null
+     */
+    public void record(AuditEventType type, String principal, String clientAddress, String detail) {
+        if (!enabled) {
+            return;
+        }
+        if (buffer.offer(new AuditEvent(System.currentTimeMillis(), type, principal, clientAddress, detail))) {
+            recordedCounter.increment();
+        } else {
+            droppedCounter.increment();
+        }
+    }
+
+    /**
+     * Записывает накопленные события.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<AuditEvent> events = new ArrayList<>(batchSize);
+            while (buffer.drainTo(events, batchSize) > 0) {
+                write(events);
+                events.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<AuditEvent> events) {
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            rows.add(new Object[]{new Timestamp(event.occurredAt()), event.type().name(),
+                    truncate(event.principal(), MAX_TEXT_LENGTH), truncate(event.clientAddress(), MAX_ADDRESS_LENGTH),
+                    truncate(event.detail(), MAX_TEXT_LENGTH)});
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            writtenCounter.increment(events.size());
+        } catch (RuntimeException e) {
+            // Пакет не повторяется: иначе недоступная база копила бы события без ограничения
+            failedCounter.increment(events.size());
+            log.error("Failed to write {} audit events", events.size(), e);
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to write audit events", e);
+        }
+    }
+
+    private void purgeQuietly() {
+        try {
+            int purged = jdbcTemplate.update(PURGE_SQL,
+                    new Timestamp(System.currentTimeMillis() - retention.toMillis()));
+            if (purged > 0) {
+                log.info("Purged {} audit events older than {}", purged, retention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge audit events", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        flushQuietly();
+    }
+}
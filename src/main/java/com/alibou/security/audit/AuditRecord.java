@@ -0,0 +1,50 @@
+package com.alibou.security.audit;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Записанное событие аудита. Записи вставляет {@link AuditLog} пакетами через JDBC,
+ * сущность нужна для схемы и запросов.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "auth_audit_events", indexes = {
+        @Index(name = "idx_auth_audit_events_principal", columnList = "principal, id"),
+        @Index(name = "idx_auth_audit_events_occurred_at", columnList = "occurred_at")})
+public class AuditRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private AuditEventType type;
+
+    private String principal;
+
+    @Column(name = "client_address", length = 64)
+    private String clientAddress;
+
+    private String detail;
+}
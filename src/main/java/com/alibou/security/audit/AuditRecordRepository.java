@@ -0,0 +1,27 @@
+package com.alibou.security.audit;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface AuditRecordRepository extends JpaRepository<AuditRecord, Long> {
+
+    /**
+     * Записи аудита от новых к старым. Пустой фильтр не ограничивает выборку.
+     *
+     * @param before идентификатор, с которого продолжается выдача (не включая его)
+     */
+    @Query("""
+            select a from AuditRecord a
+            where (:principal is null or a.principal = :principal)
+              and (:type is null or a.type = :type)
+              and (:from is null or a.occurredAt >= :from)
+              and (:to is null or a.occurredAt < :to)
+              and (:before is null or a.id < :before)
+            order by a.id desc""")
+    List<AuditRecord> search(String principal, AuditEventType type, Instant from, Instant to, Long before,
+                             Limit limit);
+}
@@ -0,0 +1,93 @@
+package com.alibou.security.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченный кольцевой буфер без блокировок: много производителей, один потребитель.
+ * <p>
+ * Схема Вьюкова: у каждой ячейки есть номер, по которому производитель понимает, что ячейка свободна,
+ * а потребитель - что элемент уже опубликован. Производитель занимает позицию одним CAS и никогда не ждет:
+ * если буфер полон, {@link #offer(Object)} сразу возвращает false.
+ */
+final class AuditRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Читает только потребитель
+    private long head;
+
+    /**
+     * @param capacity емкость; округляется вверх до степени двойки
+     */
+    AuditRingBuffer(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Добавляет элемент, если есть место. Может вызываться из любого потока.
+     *
+     * @return false, если буфер полон
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.setPlain(index, element);
+                    // Публикация: потребитель увидит элемент после номера position + 1
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // Ячейку еще не освободил потребитель - прошли целый круг
+                return false;
+            } else {
+                // Позицию уже занял другой производитель
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Переносит опубликованные элементы в список. Вызывается только одним потоком одновременно.
+     *
+     * @return число перенесенных элементов
+     */
+    int drainTo(List<E> sink, int limit) {
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) head & mask;
+            if (sequences.getAcquire(index) != head + 1) {
+                break;
+            }
+            sink.add(elements.getPlain(index));
+            elements.setPlain(index, null);
+            // Ячейка свободна для производителя следующего круга
+            sequences.setRelease(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,76 @@
+package com.alibou.security.auth;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+
+/**
+ * Cookie с токенами доступа и обновления.
+ */
+public final class AuthCookies {
+
+    public static final String ACCESS_TOKEN = "token";
+    public static final String REFRESH_TOKEN = "refresh_token";
+
+    private AuthCookies() {
+    }
+
+    /**
+     * Записывает в ответ cookie с токенами из ответа аутентификации.
+     *
+     * @param response               ответ HTTP
+     * @param authenticationResponse токены
+     */
+    public static void write(HttpServletResponse response, AuthenticationResponse authenticationResponse) {
+        Cookie cookie = new Cookie(ACCESS_TOKEN, authenticationResponse.getToken());
+        cookie.setPath("/");
+        response.addCookie(cookie);
+
+        if (authenticationResponse.getRefreshToken() != null) {
+            Cookie refreshCookie = new Cookie(REFRESH_TOKEN, authenticationResponse.getRefreshToken());
+            // Путь "/" нужен, чтобы cookie дошла и до /logout, где семейство токенов отзывается
+            refreshCookie.setPath("/");
+            refreshCookie.setHttpOnly(true);
+            response.addCookie(refreshCookie);
+        }
+    }
+
+    /**
+     * Записывает cookie с токенами в ответ реактивного варианта приложения.
+     *
+     * @param response               ответ HTTP
+     * @param authenticationResponse токены
+     */
+    public static void write(ServerHttpResponse response, AuthenticationResponse authenticationResponse) {
+        response.addCookie(ResponseCookie.from(ACCESS_TOKEN, authenticationResponse.getToken())
+                .path("/")
+                .build());
+        if (authenticationResponse.getRefreshToken() != null) {
+            response.addCookie(ResponseCookie.from(REFRESH_TOKEN, authenticationResponse.getRefreshToken())
+                    .path("/")
+                    .httpOnly(true)
+                    .build());
+        }
+    }
+
+    /**
+     * Ищет значение cookie в запросе.
+     *
+     * @param request запрос HTTP
+     * @param name    имя cookie
+     * @return значение или null
+     */
+    public static String read(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookie.getName().equals(name)) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -1,11 +1,13 @@
 package com.alibou.security.auth;
 
-import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
@@ -22,22 +24,24 @@ public class AuthenticationController {
     @PostMapping("/authenticate")
     public ResponseEntity<AuthenticationResponse> authenticate(
             AuthenticationRequest request,
+            HttpServletRequest httpServletRequest,
             HttpServletResponse httpServletResponse) {
 
-        AuthenticationResponse authenticationResponse = service.authenticate(request);
-        Cookie cookie = new Cookie("token", authenticationResponse.getToken());
-        cookie.setPath("/");
-        httpServletResponse.addCookie(cookie);
+        AuthenticationResponse authenticationResponse = service.authenticate(
+                request, httpServletRequest.getRemoteAddr());
+        AuthCookies.write(httpServletResponse, authenticationResponse);
         return ResponseEntity.ok(authenticationResponse);
     }
 
-//  @PostMapping("/refresh-token")
-//  public void refreshToken(
-//      HttpServletRequest request,
-//      HttpServletResponse response
-//  ) throws IOException {
-//    service.refreshToken(request, response);
-//  }
+    @PostMapping("/refresh-token")
+    public ResponseEntity<AuthenticationResponse> refreshToken(
+            HttpServletRequest request,
+            HttpServletResponse response) {
 
+        AuthenticationResponse authenticationResponse = service.refreshToken(
+                AuthCookies.read(request, AuthCookies.REFRESH_TOKEN));
+        AuthCookies.write(response, authenticationResponse);
+        return ResponseEntity.ok(authenticationResponse);
+    }
 
 }
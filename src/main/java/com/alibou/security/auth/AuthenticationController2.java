@@ -1,12 +1,14 @@
 package com.alibou.security.auth;
 
-import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Controller
 @RequestMapping("/api/v1/auth2")
 @RequiredArgsConstructor
@@ -36,11 +38,11 @@ public class AuthenticationController2 {
     @PostMapping("/authenticate")
     public String authenticate(
             AuthenticationRequest request,
+            HttpServletRequest httpServletRequest,
             HttpServletResponse httpServletResponse) {
-        AuthenticationResponse authenticationResponse = service.authenticate(request);
-        Cookie cookie = new Cookie("token", authenticationResponse.getToken());
-        cookie.setPath("/");
-        httpServletResponse.addCookie(cookie);
+        AuthenticationResponse authenticationResponse = service.authenticate(
+                request, httpServletRequest.getRemoteAddr());
+        AuthCookies.write(httpServletResponse, authenticationResponse);
         return "redirect:/api/v1/index-controller/index";
     }
 }
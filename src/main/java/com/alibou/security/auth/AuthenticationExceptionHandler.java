@@ -0,0 +1,48 @@
+package com.alibou.security.auth;
+
+import com.alibou.security.config.PasswordHashingRejectedException;
+import com.alibou.security.token.RefreshTokenWriterOverloadedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Быстрые отказы при перегрузке входа и регистрации, при превышении частоты попыток входа
+ * и при регистрации занятого email.
+ */
+@ControllerAdvice
+public class AuthenticationExceptionHandler {
+
+    /**
+     * Пул хэширования паролей или очередь записи refresh-токенов перегружены -
+     * клиенту предлагается повторить попытку позже.
+     */
+    @ExceptionHandler({PasswordHashingRejectedException.class, RefreshTokenWriterOverloadedException.class})
+    public ResponseEntity<Void> passwordHashingRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    /**
+     * Email уже зарегистрирован.
+     */
+    @ExceptionHandler(EmailAlreadyRegisteredException.class)
+    public ResponseEntity<Void> emailAlreadyRegistered() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * Слишком много попыток входа по email или с адреса клиента.
+     */
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<Void> loginThrottled(LoginThrottledException e) {
+        // Retry-After в целых секундах, с округлением вверх
+        long seconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+                .build();
+    }
+}
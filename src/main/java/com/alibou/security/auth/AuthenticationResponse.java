@@ -13,4 +13,7 @@ import lombok.NoArgsConstructor;
 public class AuthenticationResponse {
 
     private String token;
+
+    @JsonProperty("refresh_token")
+    private String refreshToken;
 }
@@ -1,83 +1,177 @@
 package com.alibou.security.auth;
 
+import com.alibou.security.audit.AuditEventType;
+import com.alibou.security.audit.AuditLog;
+import com.alibou.security.config.AuthenticationMetrics;
+import com.alibou.security.config.AuthenticationMetrics.LoginOperation;
 import com.alibou.security.config.JwtService;
+import com.alibou.security.config.PasswordRehashService;
+import com.alibou.security.invalidation.InvalidationBus;
+import com.alibou.security.token.InvalidRefreshTokenException;
+import com.alibou.security.token.RefreshTokenService;
+import com.alibou.security.user.EmailAddresses;
 import com.alibou.security.user.Role;
 import com.alibou.security.user.SecurityUser;
+import com.alibou.security.user.UserPrincipal;
+import com.alibou.security.user.UserPrincipalCache;
 import com.alibou.security.user.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Set;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Service
 @RequiredArgsConstructor
 public class AuthenticationService {
 
     private final UserRepository repository;
+    private final UserPrincipalCache principalCache;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final PasswordRehashService passwordRehashService;
+    private final AuthenticationMetrics metrics;
+    private final LoginThrottle loginThrottle;
+    private final InvalidationBus invalidationBus;
+    private final AuditLog auditLog;
 
     /**
      * Регистрирует нового пользователя на основе данных из запроса.
      * Создает нового пользователя, сохраняет его в репозитории и генерирует JWT токен.
+     * Время выполнения вместе с хэшированием пароля записывается в метрику auth.login.
+     * Email сохраняется в едином виде {@link EmailAddresses#normalize(String)}.
      *
      * @param request объект запроса с данными нового пользователя
      * @return объект ответа со сгенерированным JWT токеном
+     * @throws EmailAlreadyRegisteredException если email уже занят
      */
     public AuthenticationResponse register(RegisterRequest request) {
+        return metrics.recordLogin(LoginOperation.REGISTER, () -> doRegister(request));
+    }
+
+    private AuthenticationResponse doRegister(RegisterRequest request) {
         // Создание нового пользователя на основе данных из запроса
         SecurityUser securityUser = SecurityUser.builder()
                 .firstname(request.getFirstname())
                 .lastname(request.getLastname())
-                .email(request.getEmail())
+                .email(EmailAddresses.normalize(request.getEmail()))
                 .password(passwordEncoder.encode(request.getPassword()))
                 .roles(Set.of(Role.USER))
                 .build();
 
-        // Сохранение нового пользователя в репозитории
-        SecurityUser savedSecurityUser = repository.save(securityUser);
+        // Сохранение нового пользователя в репозитории; занятый email отклоняет уникальный индекс
+        SecurityUser savedSecurityUser;
+        try {
+            savedSecurityUser = repository.save(securityUser);
+        } catch (DataIntegrityViolationException e) {
+            throw new EmailAlreadyRegisteredException(e);
+        }
+        principalCache.invalidate(savedSecurityUser.getEmail());
+        invalidationBus.userChanged(savedSecurityUser.getEmail(), savedSecurityUser.getSecurityVersion());
+        auditLog.record(AuditEventType.REGISTERED, savedSecurityUser.getEmail(), null, null);
 
         // Генерация JWT токена для пользователя
-        String jwtToken = jwtService.generateToken(securityUser);
+        String jwtToken = jwtService.generateAccessToken(UserPrincipal.of(savedSecurityUser));
 
         // Возвращение объекта ответа со сгенерированным JWT токеном
         return AuthenticationResponse.builder()
                 .token(jwtToken)
+                .refreshToken(refreshTokenService.issue(savedSecurityUser.getEmail()))
                 .build();
     }
 
     /**
      * Аутентификация пользователя на основе переданного запроса.
      * При успешной аутентификации генерируется JWT токен и возвращается объект ответа с токенами доступа и обновления.
+     * Время выполнения вместе с проверкой пароля записывается в метрику auth.login.
+     * Частота попыток ограничивается до поиска пользователя и проверки пароля.
+     * Успешный вход, неверные данные и отклоненная ограничением попытка записываются в журнал аудита.
      *
-     * @param request объект запроса с данными для аутентификации
+     * @param request       объект запроса с данными для аутентификации
+     * @param clientAddress адрес клиента для ограничения частоты попыток
      * @return объект ответа со сгенерированными JWT токенами доступа и обновления
+     * @throws LoginThrottledException если попытки по email или адресу исчерпаны
      */
-    public AuthenticationResponse authenticate(AuthenticationRequest request) {
+    public AuthenticationResponse authenticate(AuthenticationRequest request, String clientAddress) {
+        String email = EmailAddresses.normalize(request.getEmail());
+        try {
+            loginThrottle.acquire(email, clientAddress);
+        } catch (LoginThrottledException e) {
+            auditLog.record(AuditEventType.LOGIN_THROTTLED, email, clientAddress, null);
+            throw e;
+        }
+        AuthenticationResponse response;
+        try {
+            response = metrics.recordLogin(LoginOperation.AUTHENTICATE, () -> doAuthenticate(request));
+        } catch (AuthenticationException e) {
+            auditLog.record(AuditEventType.LOGIN_FAILED, email, clientAddress, e.getClass().getSimpleName());
+            throw e;
+        }
+        auditLog.record(AuditEventType.LOGIN_SUCCEEDED, email, clientAddress, null);
+        return response;
+    }
+
+    private AuthenticationResponse doAuthenticate(AuthenticationRequest request) {
         /*Аутентификация пользователя на основе email и пароля из запроса.
          * authenticationManager выполняет всю работу для аутентификации пользователя.
          * В случае, если имя пользователя или пароль неверны, будет выброшено исключение.*/
-        authenticationManager.authenticate(
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getEmail(),
                         request.getPassword()
                 )
         );
 
-        // Поиск пользователя по email в репозитории
-        SecurityUser securityUser = repository.findByEmail(request.getEmail())
-                .orElseThrow();
+        // Пользователь уже загружен при аутентификации - повторный поиск в репозитории не нужен
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+
+        // Хэш с устаревшими параметрами обновляется в фоне
+        passwordRehashService.rehashIfNeeded(principal, request.getPassword());
 
         // Генерация JWT токена для пользователя
-        String jwtToken = jwtService.generateToken(securityUser);
+        String jwtToken = jwtService.generateAccessToken(principal);
 
         // Возвращение объекта ответа со сгенерированным JWT токеном
         return AuthenticationResponse.builder()
                 .token(jwtToken)
+                .refreshToken(refreshTokenService.issue(principal.email()))
+                .build();
+    }
+
+    /**
+     * Обновляет пару токенов по refresh-токену. Пароль не проверяется: достаточно
+     * одного поиска refresh-токена по индексу и подписи нового JWT.
+     *
+     * @param refreshToken предъявленный refresh-токен
+     * @return объект ответа с новыми токенами доступа и обновления
+     * @throws InvalidRefreshTokenException если refresh-токен недействителен или уже использован
+     */
+    public AuthenticationResponse refreshToken(String refreshToken) {
+        RefreshTokenService.Rotation rotation;
+        UserPrincipal principal;
+        try {
+            rotation = refreshTokenService.rotate(refreshToken);
+            principal = principalCache.findByEmail(rotation.email())
+                    .orElseThrow(() -> new InvalidRefreshTokenException("User not found"));
+        } catch (InvalidRefreshTokenException e) {
+            auditLog.record(AuditEventType.REFRESH_REJECTED, null, null, e.getMessage());
+            throw e;
+        }
+        auditLog.record(AuditEventType.TOKEN_REFRESHED, principal.email(), null, null);
+        String jwtToken = jwtService.generateAccessToken(principal);
+
+        return AuthenticationResponse.builder()
+                .token(jwtToken)
+                .refreshToken(rotation.refreshToken())
                 .build();
     }
 }
@@ -0,0 +1,12 @@
+package com.alibou.security.auth;
+
+/**
+ * Пользователь с таким email уже зарегистрирован. Занятость определяет уникальный индекс базы,
+ * поэтому две одновременные регистрации одного email не проходят обе.
+ */
+public class EmailAlreadyRegisteredException extends RuntimeException {
+
+    public EmailAlreadyRegisteredException(Throwable cause) {
+        super("Email is already registered", cause);
+    }
+}
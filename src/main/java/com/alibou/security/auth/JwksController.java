@@ -0,0 +1,28 @@
+package com.alibou.security.auth;
+
+import com.alibou.security.config.JwtKeyRing;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Публикует открытые ключи подписи (JWK Set), чтобы другие сервисы проверяли токены сами.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(keyRing.jwks());
+    }
+}
@@ -0,0 +1,123 @@
+package com.alibou.security.auth;
+
+import com.alibou.security.user.EmailAddresses;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение частоты попыток входа по email и по адресу клиента.
+ * <p>
+ * Проверка выполняется до поиска пользователя и проверки пароля, поэтому перебор паролей
+ * не превращается в неограниченную работу BCrypt. Каждый ключ - корзина токенов в форме GCRA:
+ * одно число (расчетное время следующей попытки), которое обновляется через CAS без блокировок.
+ * Корзина, простоявшая время полного пополнения, неотличима от новой и вытесняется из кэша,
+ * так что память ограничена активными ключами и {@code auth.login-throttle.max-keys}.
+ */
+@Component
+public class LoginThrottle {
+
+    private final boolean enabled;
+    private final Limit emailLimit;
+    private final Limit addressLimit;
+    private final Counter admittedCounter;
+    private final Counter rejectedByEmailCounter;
+    private final Counter rejectedByAddressCounter;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${auth.login-throttle.enabled:true}") boolean enabled,
+                         @Value("${auth.login-throttle.email.capacity:5}") int emailCapacity,
+                         @Value("${auth.login-throttle.email.refill-period:12s}") Duration emailRefillPeriod,
+                         @Value("${auth.login-throttle.address.capacity:50}") int addressCapacity,
+                         @Value("${auth.login-throttle.address.refill-period:1s}") Duration addressRefillPeriod,
+                         @Value("${auth.login-throttle.max-keys:100000}") long maxKeys) {
+        this.enabled = enabled;
+        this.emailLimit = new Limit(emailCapacity, emailRefillPeriod, maxKeys);
+        this.addressLimit = new Limit(addressCapacity, addressRefillPeriod, maxKeys);
+        this.admittedCounter = attemptCounter(meterRegistry, "admitted", "none");
+        this.rejectedByEmailCounter = attemptCounter(meterRegistry, "rejected", "email");
+        this.rejectedByAddressCounter = attemptCounter(meterRegistry, "rejected", "address");
+    }
+
+    private static Counter attemptCounter(MeterRegistry meterRegistry, String outcome, String limit) {
+        return Counter.builder("auth.login.throttle")
+                .description("Login attempts admitted or rejected by the login throttle")
+                .tag("outcome", outcome)
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Списывает попытку входа с корзин адреса и email.
+     *
+     * @param email         email из запроса; null - корзина email не проверяется
+     * @param clientAddress адрес клиента; null - корзина адреса не проверяется
+     * @throws LoginThrottledException если попытки по адресу или email исчерпаны
+     */
+    public void acquire(String email, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (clientAddress != null) {
+            long waitNanos = addressLimit.acquire(clientAddress, now);
+            if (waitNanos > 0) {
+                rejectedByAddressCounter.increment();
+                throw new LoginThrottledException(Duration.ofNanos(waitNanos));
+            }
+        }
+        if (email != null) {
+            // Регистр и пробелы не должны давать отдельную корзину
+            long waitNanos = emailLimit.acquire(EmailAddresses.normalize(email), now);
+            if (waitNanos > 0) {
+                rejectedByEmailCounter.increment();
+                throw new LoginThrottledException(Duration.ofNanos(waitNanos));
+            }
+        }
+        admittedCounter.increment();
+    }
+
+    /**
+     * Корзины токенов одного вида ключей.
+     */
+    private static final class Limit {
+
+        private final long emissionIntervalNanos;
+        private final long burstNanos;
+        // Расчетное время (System.nanoTime) попытки, которая вернет корзину в полное состояние
+        private final Cache<String, AtomicLong> buckets;
+
+        Limit(int capacity, Duration refillPeriod, long maxKeys) {
+            this.emissionIntervalNanos = refillPeriod.toNanos();
+            this.burstNanos = emissionIntervalNanos * capacity;
+            this.buckets = Caffeine.newBuilder()
+                    .expireAfterAccess(Duration.ofNanos(burstNanos))
+                    .maximumSize(maxKeys)
+                    .build();
+        }
+
+        /**
+         * @return 0, если попытка принята, иначе время до появления токена в наносекундах
+         */
+        long acquire(String key, long now) {
+            AtomicLong theoreticalArrival = buckets.get(key, k -> new AtomicLong(now));
+            while (true) {
+                long current = theoreticalArrival.get();
+                long next = Math.max(current, now) + emissionIntervalNanos;
+                long excess = next - now - burstNanos;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (theoreticalArrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
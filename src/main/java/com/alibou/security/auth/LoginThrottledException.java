@@ -0,0 +1,22 @@
+package com.alibou.security.auth;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Попытки входа по email или адресу клиента исчерпаны: запрос отклоняется до проверки пароля.
+ */
+@Getter
+public class LoginThrottledException extends RuntimeException {
+
+    /**
+     * Через сколько появится следующая попытка.
+     */
+    private final Duration retryAfter;
+
+    public LoginThrottledException(Duration retryAfter) {
+        super("Too many login attempts");
+        this.retryAfter = retryAfter;
+    }
+}
@@ -1,46 +1,61 @@
 package com.alibou.security.config;
 
+import com.alibou.security.user.EmailAddresses;
+import com.alibou.security.user.UserPrincipal;
+import com.alibou.security.user.UserPrincipalCache;
 import com.alibou.security.user.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
+@EnableConfigurationProperties(JwtKeyProperties.class)
+@EnableScheduling
 @RequiredArgsConstructor
 public class ApplicationConfig {
 
+    private final UserPrincipalCache principalCache;
     private final UserRepository repository;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final PasswordHashCalibrator passwordHashCalibrator;
 
+    // Пользователь для фильтра JWT - из кэша и без хэша пароля
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> repository.findByEmail(username)
+        return username -> principalCache.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService());
+        // Хэш пароля читается из базы только для проверки при входе и в кэш не попадает
+        authProvider.setUserDetailsService(username -> repository.findByEmail(EmailAddresses.normalize(username))
+                .map(UserPrincipal::withPassword)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found")));
         authProvider.setPasswordEncoder(passwordEncoder());
         return authProvider;
     }
 
+    // Хэширование с откалиброванной стоимостью выполняется в отдельном ограниченном пуле, а не в потоках Tomcat
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public OffloadingPasswordEncoder passwordEncoder() {
+        return new OffloadingPasswordEncoder(passwordHashCalibrator.createEncoder(), passwordHashingExecutor);
     }
 
 
-    // Бин, позволяющий авторизовывать пользователя по имени и паролю
+    // Бин, позволяющий авторизовывать пользователя по имени и паролю (в реактивном варианте не используется)
     @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config)
             throws Exception {
         return config.getAuthenticationManager();
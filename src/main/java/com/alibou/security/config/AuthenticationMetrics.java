@@ -0,0 +1,150 @@
+package com.alibou.security.config;
+
+import com.alibou.security.token.TokenDenylist;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Метрики аутентификации: время этапов фильтра JWT, исходы проверки токена,
+ * время регистрации и входа.
+ * <p>
+ * Все таймеры и счетчики создаются заранее, чтобы на каждом запросе не искать их в реестре.
+ * Гистограммы для SLO включаются настройками management.metrics.distribution.
+ */
+@Component
+public class AuthenticationMetrics {
+
+    /**
+     * Этапы фильтра аутентификации JWT.
+     */
+    public enum FilterStage {
+        COOKIE, VERIFY, PRINCIPAL, CONTEXT
+    }
+
+    /**
+     * Исход обработки токена фильтром аутентификации JWT.
+     */
+    public enum FilterOutcome {
+        NO_TOKEN, VALID, EXPIRED, BAD_SIGNATURE, MALFORMED, REVOKED, USER_NOT_FOUND, REJECTED;
+
+        /**
+         * Исход проверки токена до загрузки пользователя.
+         *
+         * @param verification результат проверки подписи и срока действия
+         * @param denylist     отозванные токены
+         * @return VALID, если токен можно принимать
+         */
+        public static FilterOutcome of(TokenVerification verification, TokenDenylist denylist) {
+            return switch (verification.status()) {
+                case VALID -> denylist.isRevoked(verification.token().id()) ? REVOKED : VALID;
+                case EXPIRED -> EXPIRED;
+                case BAD_SIGNATURE -> BAD_SIGNATURE;
+                case MALFORMED -> MALFORMED;
+            };
+        }
+    }
+
+    /**
+     * Операции {@link com.alibou.security.auth.AuthenticationService}.
+     */
+    public enum LoginOperation {
+        REGISTER, AUTHENTICATE
+    }
+
+    private final Map<FilterStage, Timer> stageTimers = new EnumMap<>(FilterStage.class);
+    private final Map<FilterOutcome, Counter> outcomeCounters = new EnumMap<>(FilterOutcome.class);
+    private final Map<LoginOperation, Timer> loginSuccessTimers = new EnumMap<>(LoginOperation.class);
+    private final Map<LoginOperation, Timer> loginFailureTimers = new EnumMap<>(LoginOperation.class);
+
+    public AuthenticationMetrics(MeterRegistry meterRegistry) {
+        for (FilterStage stage : FilterStage.values()) {
+            stageTimers.put(stage, Timer.builder("auth.filter.stage")
+                    .description("Time spent in a stage of the JWT authentication filter")
+                    .tag("stage", tagValue(stage))
+                    .register(meterRegistry));
+        }
+        for (FilterOutcome outcome : FilterOutcome.values()) {
+            outcomeCounters.put(outcome, Counter.builder("auth.filter.outcome")
+                    .description("Requests seen by the JWT authentication filter by token outcome")
+                    .tag("outcome", tagValue(outcome))
+                    .register(meterRegistry));
+        }
+        for (LoginOperation operation : LoginOperation.values()) {
+            loginSuccessTimers.put(operation, loginTimer(meterRegistry, operation, "success"));
+            loginFailureTimers.put(operation, loginTimer(meterRegistry, operation, "failure"));
+        }
+    }
+
+    private static Timer loginTimer(MeterRegistry meterRegistry, LoginOperation operation, String outcome) {
+        return Timer.builder("auth.login")
+                .description("Registration and login time including password hashing")
+                .tag("operation", tagValue(operation))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Записывает время этапа фильтра.
+     *
+     * @param stage     этап
+     * @param startedAt начало этапа, {@link System#nanoTime()}
+     * @return конец этапа - начало следующего
+     */
+    public long recordStage(FilterStage stage, long startedAt) {
+        long finishedAt = System.nanoTime();
+        stageTimers.get(stage).record(finishedAt - startedAt, TimeUnit.NANOSECONDS);
+        return finishedAt;
+    }
+
+    /**
+     * Учитывает исход обработки токена.
+     *
+     * @param outcome исход
+     */
+    public void recordOutcome(FilterOutcome outcome) {
+        outcomeCounters.get(outcome).increment();
+    }
+
+    /**
+     * Выполняет регистрацию или вход и записывает время с признаком успеха.
+     *
+     * @param operation операция
+     * @param action    действие
+     * @return результат действия
+     */
+    public <T> T recordLogin(LoginOperation operation, Supplier<T> action) {
+        long startedAt = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = action.get();
+            success = true;
+            return result;
+        } finally {
+            recordLogin(operation, success, startedAt);
+        }
+    }
+
+    /**
+     * Записывает время регистрации или входа, завершившихся асинхронно.
+     *
+     * @param operation операция
+     * @param success   признак успеха
+     * @param startedAt начало операции, {@link System#nanoTime()}
+     */
+    public void recordLogin(LoginOperation operation, boolean success, long startedAt) {
+        (success ? loginSuccessTimers : loginFailureTimers).get(operation)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
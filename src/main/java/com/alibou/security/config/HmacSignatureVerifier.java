@@ -0,0 +1,64 @@
+package com.alibou.security.config;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+
+/**
+ * Проверка подписи HS256. Ключ инициализируется один раз, {@link Mac} берется из пула и переиспользуется.
+ */
+class HmacSignatureVerifier implements JwsSignatureVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_LENGTH = 32;
+
+    private final InstancePool<MacState> macs;
+
+    HmacSignatureVerifier(SecretKey key) {
+        this.macs = new InstancePool<>(() -> new MacState(newMac(key)));
+        // Проверяем ключ сразу при создании, а не на первом запросе
+        newMac(key);
+    }
+
+    @Override
+    public boolean verify(byte[] input, int inputLength, byte[] signature, int signatureLength) {
+        if (signatureLength != SIGNATURE_LENGTH) {
+            return false;
+        }
+        MacState state = macs.borrow();
+        state.mac.update(input, 0, inputLength);
+        try {
+            state.mac.doFinal(state.expected, 0);
+        } catch (GeneralSecurityException e) {
+            // Состояние Mac неизвестно - в пул не возвращаем
+            return false;
+        }
+        // Сравнение за постоянное время, как в MessageDigest.isEqual, но без копирования буфера
+        int difference = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            difference |= state.expected[i] ^ signature[i];
+        }
+        macs.release(state);
+        return difference == 0;
+    }
+
+    private static Mac newMac(SecretKey key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + ALGORITHM, e);
+        }
+    }
+
+    private static final class MacState {
+
+        private final Mac mac;
+        private final byte[] expected = new byte[SIGNATURE_LENGTH];
+
+        private MacState(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
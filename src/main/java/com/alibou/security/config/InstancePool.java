@@ -0,0 +1,55 @@
+package com.alibou.security.config;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Небольшой пул переиспользуемых объектов без блокировок.
+ * <p>
+ * Заменяет ThreadLocal для {@code Mac}, {@code Signature} и буферов: с виртуальными потоками
+ * каждый запрос выполняется в новом потоке, и ThreadLocal создавал бы объект заново на каждый запрос.
+ * Пул не блокирует поток: если свободного объекта нет, создается новый, а лишние при возврате отбрасываются.
+ */
+final class InstancePool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final Supplier<T> factory;
+
+    InstancePool(Supplier<T> factory) {
+        this.factory = factory;
+        this.slots = new AtomicReferenceArray<>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    /**
+     * @return свободный объект из пула или новый
+     */
+    T borrow() {
+        int length = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (slots.get(index) != null) {
+                T instance = slots.getAndSet(index, null);
+                if (instance != null) {
+                    return instance;
+                }
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * Возвращает объект в пул. Объект в неизвестном состоянии возвращать нельзя - его нужно просто отбросить.
+     */
+    void release(T instance) {
+        int length = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, instance)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.alibou.security.config;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+
+/**
+ * Проверка асимметричной подписи (ES256, RS256) открытым ключом.
+ * {@link Signature} инициализируется ключом один раз, берется из пула и переиспользуется.
+ */
+class JcaSignatureVerifier implements JwsSignatureVerifier {
+
+    private final InstancePool<Signature> signatures;
+
+    /**
+     * @param jcaAlgorithm имя алгоритма JCA; для ES256 - формат подписи P1363 (R||S), как в JWS
+     * @param publicKey    открытый ключ
+     */
+    JcaSignatureVerifier(String jcaAlgorithm, PublicKey publicKey) {
+        this.signatures = new InstancePool<>(() -> newSignature(jcaAlgorithm, publicKey));
+        // Проверяем ключ сразу при создании, а не на первом запросе
+        newSignature(jcaAlgorithm, publicKey);
+    }
+
+    @Override
+    public boolean verify(byte[] input, int inputLength, byte[] signature, int signatureLength) {
+        Signature verifier = signatures.borrow();
+        boolean valid;
+        try {
+            verifier.update(input, 0, inputLength);
+            valid = verifier.verify(signature, 0, signatureLength);
+        } catch (GeneralSecurityException e) {
+            // verify() сбрасывает состояние только при нормальном завершении - такой объект отбрасываем
+            return false;
+        }
+        signatures.release(verifier);
+        return valid;
+    }
+
+    private static Signature newSignature(String jcaAlgorithm, PublicKey publicKey) {
+        try {
+            Signature signature = Signature.getInstance(jcaAlgorithm);
+            signature.initVerify(publicKey);
+            return signature;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + jcaAlgorithm, e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.alibou.security.config;
+
+/**
+ * Проверка подписи JWS для одного ключа. Реализации потокобезопасны
+ * и не создают криптографические объекты на каждый вызов.
+ */
+public interface JwsSignatureVerifier {
+
+    /**
+     * Проверяет подпись.
+     *
+     * @param input           подписываемые байты (header.payload в ASCII)
+     * @param inputLength     длина подписываемых байт в буфере
+     * @param signature       декодированная подпись
+     * @param signatureLength длина подписи в буфере
+     * @return true, если подпись верна
+     */
+    boolean verify(byte[] input, int inputLength, byte[] signature, int signatureLength);
+}
@@ -0,0 +1,188 @@
+package com.alibou.security.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Проверка JWT-токенов без исключений и с минимумом аллокаций.
+ * <p>
+ * Ключ проверки выбирается по kid из заголовка в {@link JwtKeyRing}. Подпись проверяется по исходным
+ * байтам токена до разбора тела, поэтому поддельный или поврежденный токен отбрасывается
+ * без разбора JSON. Уже встречавшиеся заголовки не разбираются повторно.
+ */
+public class JwsTokenVerifier {
+
+    // Подпись RS256 с ключом до 4096 бит
+    private static final int MAX_SIGNATURE_LENGTH = 512;
+    private static final int MAX_KNOWN_HEADERS = 64;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {
+    };
+
+    private static final byte[] BASE64_URL = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_URL[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final JwtKeyRing keyRing;
+    private final InstancePool<Buffers> buffers = new InstancePool<>(Buffers::new);
+
+    // Заголовки токенов, уже прошедших проверку, и соответствующие им ключи
+    private final Map<String, JwtKeyRing.SigningKey> knownHeaders = new ConcurrentHashMap<>();
+
+    public JwsTokenVerifier(JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
+
+    /**
+     * Проверяет токен.
+     *
+     * @param token токен в компактной форме header.payload.signature
+     * @return результат проверки; исключения не выбрасываются
+     */
+    public TokenVerification verify(String token) {
+        if (token == null) {
+            return TokenVerification.MALFORMED;
+        }
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            return TokenVerification.MALFORMED;
+        }
+
+        String header = token.substring(0, headerEnd);
+        JwtKeyRing.SigningKey key = knownHeaders.get(header);
+        boolean knownHeader = key != null;
+        if (!knownHeader) {
+            key = resolveKey(token, headerEnd);
+            if (key == null) {
+                return TokenVerification.MALFORMED;
+            }
+        }
+
+        Buffers state = buffers.borrow();
+        try {
+            int inputLength = state.copySigningInput(token, payloadEnd);
+            int signatureLength = decodeBase64Url(token, payloadEnd + 1, token.length(), state.signature);
+            if (inputLength < 0 || signatureLength < 0) {
+                return TokenVerification.MALFORMED;
+            }
+            if (!key.verifier().verify(state.input, inputLength, state.signature, signatureLength)) {
+                return TokenVerification.BAD_SIGNATURE;
+            }
+        } finally {
+            buffers.release(state);
+        }
+        if (!knownHeader && knownHeaders.size() < MAX_KNOWN_HEADERS) {
+            knownHeaders.put(header, key);
+        }
+
+        Map<String, Object> claims = readJson(token, headerEnd + 1, payloadEnd);
+        if (claims == null) {
+            return TokenVerification.MALFORMED;
+        }
+        VerifiedToken verified = VerifiedToken.from(claims);
+        return verified.isExpired()
+                ? TokenVerification.expired(verified)
+                : TokenVerification.valid(verified);
+    }
+
+    /**
+     * Разбирает заголовок и находит ключ по kid. Алгоритм в заголовке должен совпадать
+     * с алгоритмом ключа, иначе токен не принимается.
+     */
+    private JwtKeyRing.SigningKey resolveKey(String token, int headerEnd) {
+        Map<String, Object> header = readJson(token, 0, headerEnd);
+        if (header == null) {
+            return null;
+        }
+        Object keyId = header.get("kid");
+        JwtKeyRing.SigningKey key = keyRing.find(keyId instanceof String id ? id : null);
+        if (key == null || (keyId != null && !(keyId instanceof String))
+                || !key.algorithm().getValue().equals(header.get("alg"))) {
+            return null;
+        }
+        return key;
+    }
+
+    private static Map<String, Object> readJson(String token, int from, int to) {
+        byte[] json = new byte[(to - from) * 3 / 4];
+        int length = decodeBase64Url(token, from, to, json);
+        if (length < 0) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(json, 0, length, CLAIMS_TYPE);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Декодирует base64url без дополнения в заданный буфер.
+     *
+     * @return количество байт или -1, если строка не является base64url или не помещается в буфер
+     */
+    private static int decodeBase64Url(String source, int from, int to, byte[] target) {
+        if ((to - from) % 4 == 1 || (to - from) * 3 / 4 > target.length) {
+            return -1;
+        }
+        int buffer = 0;
+        int bits = 0;
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            int value = c < 128 ? BASE64_URL[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            buffer = (buffer << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                target[length++] = (byte) (buffer >> bits);
+                buffer &= (1 << bits) - 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Буферы для подписываемых байт и подписи; берутся из пула на время одной проверки.
+     */
+    private static final class Buffers {
+
+        private final byte[] signature = new byte[MAX_SIGNATURE_LENGTH];
+        private byte[] input = new byte[512];
+
+        /**
+         * Копирует header.payload в буфер как ASCII.
+         *
+         * @return длина или -1, если в токене есть не-ASCII символы
+         */
+        private int copySigningInput(String token, int length) {
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = token.charAt(i);
+                if (c >= 128) {
+                    return -1;
+                }
+                input[i] = (byte) c;
+            }
+            return length;
+        }
+    }
+}
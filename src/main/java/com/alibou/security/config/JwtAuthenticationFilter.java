@@ -1,16 +1,26 @@
 package com.alibou.security.config;
 
+import com.alibou.security.audit.AuditEventType;
+import com.alibou.security.audit.AuditLog;
+import com.alibou.security.auth.AuthCookies;
+import com.alibou.security.config.AuthenticationMetrics.FilterOutcome;
+import com.alibou.security.config.AuthenticationMetrics.FilterStage;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.alibou.security.token.TokenDenylist;
+import com.alibou.security.user.SecurityVersionRegistry;
+import com.alibou.security.user.UserPrincipal;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,13 +29,27 @@ import java.io.IOException;
 
 /**
  * Фильтр аутентификации JWT, который обрабатывает запросы для проверки токена JWT.
+ * Время каждого этапа и исход проверки токена записываются в {@link AuthenticationMetrics},
+ * непринятые токены - в журнал аудита.
  */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final SecurityVersionRegistry versionRegistry;
+    private final TokenDenylist denylist;
+    private final AuthenticationMetrics metrics;
+    private final AuditLog auditLog;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
+
+    /**
+     * Режим stateless: роли берутся из claims токена, без обращения к базе данных.
+     */
+    @Value("${auth.stateless:false}")
+    private boolean stateless;
 
     /**
      * Выполняет внутреннюю фильтрацию для аутентификации JWT.
@@ -41,34 +65,81 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain)
             throws ServletException, IOException {
-        final Cookie[] cookies = request.getCookies();
-        String jwt = null;
-        String userEmail = null;
+        long startedAt = System.nanoTime();
+        String rawToken = AuthCookies.read(request, AuthCookies.ACCESS_TOKEN);
+        long stageStartedAt = metrics.recordStage(FilterStage.COOKIE, startedAt);
 
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if (cookie.getName().equals("token")) {
-                    jwt = cookie.getValue();
-                    userEmail = jwtService.extractUsername(jwt);
+        if (rawToken == null) {
+            metrics.recordOutcome(FilterOutcome.NO_TOKEN);
+        } else if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            TokenVerification verification = jwtService.tryVerify(rawToken);
+            stageStartedAt = metrics.recordStage(FilterStage.VERIFY, stageStartedAt);
+
+            FilterOutcome outcome = FilterOutcome.of(verification, denylist);
+            if (outcome == FilterOutcome.VALID) {
+                VerifiedToken token = verification.token();
+                UsernamePasswordAuthenticationToken authToken;
+                try {
+                    authToken = stateless ? authenticateFromClaims(token) : authenticateFromUser(token);
+                } catch (UsernameNotFoundException e) {
+                    // Пользователь удален после выпуска токена: запрос продолжается без аутентификации
+                    authToken = null;
+                    outcome = FilterOutcome.USER_NOT_FOUND;
                 }
+                stageStartedAt = metrics.recordStage(FilterStage.PRINCIPAL, stageStartedAt);
 
-                if (userEmail != null && SecurityContextHolder
-                        .getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
-                    if (jwtService.isTokenValid(jwt, userDetails)) {
-                        UsernamePasswordAuthenticationToken authToken =
-                                new UsernamePasswordAuthenticationToken(
-                                        userDetails,
-                                        null,
-                                        userDetails.getAuthorities()
-                                );
-                        authToken.setDetails(
-                                new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
-                    }
+                if (authToken != null) {
+                    authToken.setDetails(detailsSource.buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    metrics.recordStage(FilterStage.CONTEXT, stageStartedAt);
+                } else if (outcome == FilterOutcome.VALID) {
+                    outcome = FilterOutcome.REJECTED;
                 }
             }
+            metrics.recordOutcome(outcome);
+            if (outcome != FilterOutcome.VALID) {
+                auditLog.record(AuditEventType.TOKEN_REJECTED,
+                        verification.token() != null ? verification.token().subject() : null,
+                        request.getRemoteAddr(), outcome.name());
+            }
         }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Строит аутентификацию по пользователю, загруженному через {@link UserDetailsService}.
+     *
+     * @param token проверенный токен
+     * @return аутентификация или null, если токен не подходит пользователю
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromUser(VerifiedToken token) {
+        UserDetails userDetails = userDetailsService.loadUserByUsername(token.subject());
+        if (!token.isValidFor(userDetails)) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities()
+        );
+    }
+
+    /**
+     * Строит аутентификацию только по claims токена, без обращения к репозиторию.
+     * Токен с устаревшей версией безопасности не принимается.
+     *
+     * @param token проверенный токен
+     * @return аутентификация или null, если токен истек или его версия устарела
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromClaims(VerifiedToken token) {
+        if (token.isExpired() || !versionRegistry.isCurrent(token.subject(), token.securityVersion())) {
+            return null;
+        }
+        UserPrincipal principal = token.principal();
+        return new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                principal.getAuthorities()
+        );
+    }
 }
@@ -0,0 +1,60 @@
+package com.alibou.security.config;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки кольца ключей подписи JWT (префикс auth.jwt).
+ * <p>
+ * Ротация выполняется в три шага: новый ключ добавляется на все узлы только для проверки,
+ * затем становится активным для подписи, а старый удаляется после истечения срока
+ * действия выпущенных им токенов.
+ */
+@Data
+@ConfigurationProperties(prefix = "auth.jwt")
+public class JwtKeyProperties {
+
+    /**
+     * Идентификатор (kid) ключа, которым подписываются новые токены.
+     * Если не задан, токены подписываются ключом auth.secret без kid.
+     */
+    private String activeKeyId;
+
+    /**
+     * Ключи, принимаемые при проверке подписи.
+     */
+    private List<Key> keys = new ArrayList<>();
+
+    @Data
+    public static class Key {
+
+        /**
+         * Идентификатор ключа, передается в заголовке kid.
+         */
+        private String id;
+
+        /**
+         * Алгоритм подписи: HS256, ES256 или RS256.
+         */
+        private SignatureAlgorithm algorithm = SignatureAlgorithm.HS256;
+
+        /**
+         * Секрет HS256 в base64.
+         */
+        private String secret;
+
+        /**
+         * Закрытый ключ ES256/RS256 в base64 (PKCS#8 DER). Не нужен для ключей только для проверки.
+         */
+        private String privateKey;
+
+        /**
+         * Открытый ключ ES256/RS256 в base64 (X.509 DER).
+         */
+        private String publicKey;
+    }
+}
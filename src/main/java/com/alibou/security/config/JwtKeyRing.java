@@ -0,0 +1,207 @@
+package com.alibou.security.config;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кольцо ключей подписи JWT. Для проверки могут быть активны несколько ключей одновременно,
+ * у каждого заранее создан свой {@link JwsSignatureVerifier}, ключ ищется по kid из заголовка.
+ * Токены без kid проверяются ключом auth.secret.
+ */
+@Component
+public class JwtKeyRing {
+
+    // ES256 определен только для кривой P-256 (RFC 7518, 3.4)
+    private static final ECParameterSpec P_256 = p256();
+
+    private final Map<String, SigningKey> keys;
+    private final SigningKey legacyKey;
+    private final SigningKey activeKey;
+    private final Map<String, Object> jwks;
+
+    public JwtKeyRing(@Value("${auth.secret:}") String legacySecret, JwtKeyProperties properties) {
+        this.legacyKey = legacySecret == null || legacySecret.isBlank()
+                ? null
+                : hmacKey(null, legacySecret);
+
+        Map<String, SigningKey> ring = new LinkedHashMap<>();
+        for (JwtKeyProperties.Key key : properties.getKeys()) {
+            if (key.getId() == null || key.getId().isBlank()) {
+                throw new IllegalStateException("Every auth.jwt.keys entry needs an id");
+            }
+            if (ring.put(key.getId(), toSigningKey(key)) != null) {
+                throw new IllegalStateException("Duplicate JWT key id " + key.getId());
+            }
+        }
+        this.keys = Collections.unmodifiableMap(ring);
+
+        this.activeKey = properties.getActiveKeyId() == null ? legacyKey : ring.get(properties.getActiveKeyId());
+        if (activeKey == null || activeKey.signingKey() == null) {
+            throw new IllegalStateException("No signing key available for auth.jwt.active-key-id="
+                    + properties.getActiveKeyId());
+        }
+        this.jwks = buildJwks(ring.values());
+    }
+
+    /**
+     * @return ключ, которым подписываются новые токены
+     */
+    public SigningKey activeKey() {
+        return activeKey;
+    }
+
+    /**
+     * Ищет ключ проверки по идентификатору.
+     *
+     * @param keyId kid из заголовка токена или null для токенов без kid
+     * @return ключ или null, если такой ключ не принимается
+     */
+    public SigningKey find(String keyId) {
+        return keyId == null ? legacyKey : keys.get(keyId);
+    }
+
+    /**
+     * @return JWK Set с открытыми ключами ES256/RS256 для проверки токенов другими сервисами
+     */
+    public Map<String, Object> jwks() {
+        return jwks;
+    }
+
+    private static SigningKey toSigningKey(JwtKeyProperties.Key key) {
+        return switch (key.getAlgorithm()) {
+            case HS256 -> hmacKey(key.getId(), key.getSecret());
+            case ES256 -> asymmetricKey(key, "EC", "SHA256withECDSAinP1363Format");
+            case RS256 -> asymmetricKey(key, "RSA", "SHA256withRSA");
+            default -> throw new IllegalStateException("Unsupported JWT algorithm " + key.getAlgorithm());
+        };
+    }
+
+    private static SigningKey hmacKey(String id, String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("HS256 key " + id + " needs a secret");
+        }
+        SecretKeySpec key = new SecretKeySpec(Base64.getDecoder().decode(secret),
+                SignatureAlgorithm.HS256.getJcaName());
+        return new SigningKey(id, SignatureAlgorithm.HS256, key, null, new HmacSignatureVerifier(key));
+    }
+
+    private static SigningKey asymmetricKey(JwtKeyProperties.Key key, String keyAlgorithm, String jcaAlgorithm) {
+        if (key.getPublicKey() == null) {
+            throw new IllegalStateException(key.getAlgorithm() + " key " + key.getId() + " needs a public key");
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm);
+            PublicKey publicKey = keyFactory.generatePublic(
+                    new X509EncodedKeySpec(Base64.getDecoder().decode(key.getPublicKey())));
+            Key privateKey = key.getPrivateKey() == null ? null : keyFactory.generatePrivate(
+                    new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key.getPrivateKey())));
+            if ((publicKey instanceof ECKey ec && !isP256(ec))
+                    || (privateKey instanceof ECKey ecPrivate && !isP256(ecPrivate))) {
+                throw new IllegalStateException("ES256 key " + key.getId() + " must be on curve P-256");
+            }
+            return new SigningKey(key.getId(), key.getAlgorithm(), privateKey, publicKey,
+                    new JcaSignatureVerifier(jcaAlgorithm, publicKey));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid key material for JWT key " + key.getId(), e);
+        }
+    }
+
+    private static boolean isP256(ECKey key) {
+        ECParameterSpec params = key.getParams();
+        return params.getCurve().equals(P_256.getCurve())
+                && params.getGenerator().equals(P_256.getGenerator())
+                && params.getOrder().equals(P_256.getOrder())
+                && params.getCofactor() == P_256.getCofactor();
+    }
+
+    private static ECParameterSpec p256() {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            return parameters.getParameterSpec(ECParameterSpec.class);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Curve P-256 is not supported by the JVM", e);
+        }
+    }
+
+    private static Map<String, Object> buildJwks(Iterable<SigningKey> signingKeys) {
+        List<Map<String, Object>> published = new ArrayList<>();
+        for (SigningKey key : signingKeys) {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            if (key.publicKey() instanceof ECPublicKey ec) {
+                // Кривая проверена при загрузке ключа
+                int size = (ec.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("x", base64Url(ec.getW().getAffineX(), size));
+                jwk.put("y", base64Url(ec.getW().getAffineY(), size));
+            } else if (key.publicKey() instanceof RSAPublicKey rsa) {
+                jwk.put("kty", "RSA");
+                jwk.put("n", base64Url(rsa.getModulus(), 0));
+                jwk.put("e", base64Url(rsa.getPublicExponent(), 0));
+            } else {
+                continue;
+            }
+            jwk.put("kid", key.id());
+            jwk.put("alg", key.algorithm().getValue());
+            jwk.put("use", "sig");
+            published.add(Collections.unmodifiableMap(jwk));
+        }
+        return Map.of("keys", List.copyOf(published));
+    }
+
+    /**
+     * Кодирует беззнаковое big-endian представление числа, дополненное нулями до {@code size} байт.
+     */
+    private static String base64Url(BigInteger value, int size) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < size) {
+            byte[] padded = new byte[size];
+            System.arraycopy(bytes, 0, padded, size - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Ключ из кольца.
+     *
+     * @param id         kid или null для ключа auth.secret
+     * @param algorithm  алгоритм подписи
+     * @param signingKey ключ подписи; null для ключей только для проверки
+     * @param publicKey  открытый ключ для асимметричных алгоритмов
+     * @param verifier   заранее созданный проверяющий подпись
+     */
+    public record SigningKey(String id,
+                             SignatureAlgorithm algorithm,
+                             Key signingKey,
+                             PublicKey publicKey,
+                             JwsSignatureVerifier verifier) {
+    }
+}
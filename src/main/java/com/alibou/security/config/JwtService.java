@@ -1,15 +1,31 @@
 package com.alibou.security.config;
 
+import com.alibou.security.user.UserPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.impl.DefaultClaims;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
@@ -18,8 +34,42 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
-    @Value("${auth.secret}")
-    private String SECRET_KEY;
+    /**
+     * Claim со списком ролей пользователя.
+     */
+    public static final String ROLES_CLAIM = "roles";
+
+    /**
+     * Claim с версией безопасности пользователя на момент выпуска токена.
+     */
+    public static final String VERSION_CLAIM = "ver";
+
+    /**
+     * Claim с идентификатором пользователя.
+     */
+    public static final String USER_ID_CLAIM = "uid";
+
+    private final JwtKeyRing keyRing;
+    private final JwsTokenVerifier verifier;
+    private final Duration accessTokenTtl;
+
+    /**
+     * Кэш уже проверенных токенов. Ключ - SHA-256 от токена, запись удаляется
+     * в момент истечения срока действия самого токена.
+     */
+    private final Cache<TokenDigest, TokenVerification> verifiedTokens;
+
+    public JwtService(JwtKeyRing keyRing,
+                      @Value("${auth.access-token-ttl:15m}") Duration accessTokenTtl,
+                      @Value("${auth.token-cache.max-size:10000}") long tokenCacheMaxSize) {
+        this.keyRing = keyRing;
+        this.accessTokenTtl = accessTokenTtl;
+        this.verifier = new JwsTokenVerifier(keyRing);
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
 
     /**
      * Генерирует токен для пользователя на основе информации о пользователе.
@@ -30,6 +80,23 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    /**
+     * Генерирует токен доступа с claims авторизации: идентификатором, ролями и версией безопасности
+     * пользователя. Они позволяют фильтру в режиме stateless не обращаться к базе данных.
+     *
+     * @param principal пользователь
+     * @return сгенерированный токен
+     */
+    public String generateAccessToken(UserPrincipal principal) {
+        Map<String, Object> claims = new HashMap<>();
+        if (principal.id() != null) {
+            claims.put(USER_ID_CLAIM, principal.id());
+        }
+        claims.put(ROLES_CLAIM, principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        claims.put(VERSION_CLAIM, principal.securityVersion());
+        return generateToken(claims, principal);
+    }
+
     /**
      * Генерирует токен для пользователя с дополнительными данными.
      *
@@ -38,50 +105,76 @@ public class JwtService {
      * @return сгенерированный токен
      */
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return Jwts
-                .builder()
+        JwtKeyRing.SigningKey key = keyRing.activeKey();
+        JwtBuilder builder = Jwts.builder();
+        if (key.id() != null) {
+            builder.setHeaderParam("kid", key.id());
+        }
+        return builder
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10))
-                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
+                .setExpiration(new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()))
+                .signWith(key.algorithm(), key.signingKey())
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
     /**
-     * Проверяет, действителен ли токен для указанного пользователя.
+     * Проверяет подпись токена и возвращает неизменяемый проверенный токен.
+     * Повторная проверка того же токена берется из кэша без разбора и вычисления подписи.
      *
      * @param token токен для проверки
-     * @param userDetails сведения о пользователе
-     * @return true, если токен действителен для указанного пользователя, в противном случае - false
+     * @return проверенный токен
+     * @throws io.jsonwebtoken.JwtException если токен поврежден, подпись неверна или срок действия истек
      */
-    public Boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    public VerifiedToken verify(String token) {
+        TokenVerification verification = tryVerify(token);
+        return switch (verification.status()) {
+            case VALID -> verification.token();
+            case EXPIRED -> throw new ExpiredJwtException(
+                    null, new DefaultClaims(verification.token().claims()), "JWT expired");
+            case BAD_SIGNATURE -> throw new SignatureException("JWT signature does not match");
+            case MALFORMED -> throw new MalformedJwtException("JWT is malformed");
+        };
     }
 
     /**
-     * Проверяет, истек ли срок действия токена.
+     * Проверяет токен без выбрасывания исключений. Действительные токены кэшируются
+     * до истечения их срока действия.
      *
-     * @param token Токен для проверки
-     * @return Истина, если токен истек, ложь в противном случае
+     * @param token токен для проверки
+     * @return результат проверки со статусом VALID, EXPIRED, BAD_SIGNATURE или MALFORMED
      */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public TokenVerification tryVerify(String token) {
+        if (token == null) {
+            return TokenVerification.MALFORMED;
+        }
+        TokenDigest digest = TokenDigest.of(token);
+        TokenVerification cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+        TokenVerification verification = verifier.verify(token);
+        if (verification.isValid() && verification.token().expiresAt() != null) {
+            verifiedTokens.put(digest, verification);
+        }
+        return verification;
+    }
+
+    public String extractUsername(String token) {
+        return verify(token).subject();
     }
 
     /**
-     * Извлекает дату истечения срока действия из токена.
+     * Проверяет, действителен ли токен для указанного пользователя.
      *
-     * @param token токен, из которого нужно извлечь дату истечения
-     * @return дата истечения из токена
+     * @param token токен для проверки
+     * @param userDetails сведения о пользователе
+     * @return true, если токен действителен для указанного пользователя, в противном случае - false
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public Boolean isTokenValid(String token, UserDetails userDetails) {
+        return verify(token).isValidFor(userDetails);
     }
 
     /**
@@ -92,21 +185,47 @@ public class JwtService {
      * @return извлеченное утверждение
      */
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = new DefaultClaims(verify(token).claims());
         return claimsResolver.apply(claims);
     }
 
     /**
-     * Метод извлекает все Claims из токена
-     *
-     * @param token токен
-     * @return Claims из токена
+     * Ключ кэша проверенных токенов: SHA-256 от токена, разложенный на четыре long.
+     * Сам токен в кэше не хранится.
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .setSigningKey(SECRET_KEY)
-                .parseClaimsJws(token)
-                .getBody();
+    private record TokenDigest(long h0, long h1, long h2, long h3) {
+
+        static TokenDigest of(String token) {
+            try {
+                ByteBuffer hash = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                        .digest(token.getBytes(StandardCharsets.US_ASCII)));
+                return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+
+    /**
+     * Время жизни записи в кэше равно оставшемуся сроку действия токена.
+     */
+    private static final class TokenExpiry implements Expiry<TokenDigest, TokenVerification> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, TokenVerification value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.token().expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, TokenVerification value,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, TokenVerification value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
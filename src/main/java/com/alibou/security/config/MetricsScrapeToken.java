@@ -0,0 +1,40 @@
+package com.alibou.security.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Учетные данные сборщика метрик для {@code /actuator/prometheus}.
+ * <p>
+ * Prometheus не умеет входить через форму и обновлять cookie с токеном доступа, поэтому метрики
+ * защищены отдельным токеном {@code auth.metrics.scrape-token}: сборщик передает его в заголовке
+ * {@code Authorization: Bearer ...} (параметр {@code authorization.credentials} в scrape_config).
+ * Без настроенного токена метрики никому не отдаются.
+ */
+@Component
+public class MetricsScrapeToken {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final byte[] token;
+
+    public MetricsScrapeToken(@Value("${auth.metrics.scrape-token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param authorization значение заголовка Authorization или null
+     * @return true, если заголовок содержит настроенный токен
+     */
+    public boolean matches(String authorization) {
+        if (token.length == 0 || authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return false;
+        }
+        // Сравнение за постоянное время, чтобы токен нельзя было подобрать по времени ответа
+        return MessageDigest.isEqual(token,
+                authorization.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,41 @@
+package com.alibou.security.config;
+
+import com.alibou.security.config.PasswordHashingExecutor.HashOperation;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link PasswordEncoder}, выполняющий хэширование и проверку пароля в {@link PasswordHashingExecutor},
+ * а не в потоке запроса.
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute(HashOperation.ENCODE, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute(HashOperation.MATCHES, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * @return кодировщик, выполняющий работу в текущем потоке
+     */
+    public PasswordEncoder delegate() {
+        return delegate;
+    }
+}
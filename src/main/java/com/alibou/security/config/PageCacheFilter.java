@@ -0,0 +1,174 @@
+package com.alibou.security.config;
+
+import com.alibou.security.user.Role;
+import com.alibou.security.user.UserPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш отрисованных страниц Thymeleaf.
+ * <p>
+ * Страницы не зависят от данных пользователя: вход и регистрация одинаковы для всех, главная - для всех вошедших,
+ * а блоки {@code sec:authorize} страницы приветствия зависят только от того, вошел ли пользователь и какие
+ * у него роли. Поэтому первая отрисовка сохраняется в байтах для каждого такого варианта, а повторные запросы
+ * отдаются из памяти без вызова контроллера и шаблонизатора. Каждый вариант получает ETag и Last-Modified,
+ * и при совпадении условного запроса ответ - 304 без тела.
+ * <p>
+ * Фильтр стоит после цепочки безопасности, так что доступ к закрытой странице проверяется до кэша.
+ * Страницы входа и регистрации кэшируются браузером и CDN на {@code auth.page-cache.public-max-age},
+ * остальные - только браузером и всегда с перепроверкой.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+public class PageCacheFilter extends OncePerRequestFilter {
+
+    /**
+     * От чего зависит содержимое страницы.
+     */
+    enum Scope {
+        // Одинакова для всех
+        PUBLIC,
+        // Одинакова для всех, кого пропустила цепочка безопасности
+        AUTHENTICATED,
+        // Зависит от того, вошел ли пользователь, и от его ролей
+        ROLES
+    }
+
+    private static final Map<String, Scope> PAGES = Map.of(
+            "/api/v1/auth2/login-page", Scope.PUBLIC,
+            "/api/v1/auth2/signup-page", Scope.PUBLIC,
+            "/api/v1/index-controller/index", Scope.AUTHENTICATED,
+            "/api/v1/greeting-controller", Scope.ROLES);
+
+    // Вариант страницы для анонимного пользователя; маски ролей неотрицательны
+    private static final int ANONYMOUS = -1;
+
+    private final boolean enabled;
+    private final String publicCacheControl;
+    private final String privateCacheControl = CacheControl.noCache().cachePrivate().getHeaderValue();
+    private final Map<Key, CachedPage> pages = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter notModifiedCounter;
+
+    public PageCacheFilter(MeterRegistry meterRegistry,
+                           @Value("${auth.page-cache.enabled:true}") boolean enabled,
+                           @Value("${auth.page-cache.public-max-age:60s}") Duration publicMaxAge) {
+        this.enabled = enabled;
+        this.publicCacheControl = CacheControl.maxAge(publicMaxAge).cachePublic().getHeaderValue();
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.notModifiedCounter = requestCounter(meterRegistry, "not-modified");
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("page.cache.requests")
+                .description("Requests for cached Thymeleaf pages by cache result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled
+                || !"GET".equals(request.getMethod())
+                || request.getQueryString() != null
+                || !PAGES.containsKey(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = path(request);
+        Scope scope = PAGES.get(path);
+        Key key = new Key(path, scope == Scope.ROLES
+                ? variant(SecurityContextHolder.getContext().getAuthentication())
+                : 0);
+        String cacheControl = scope == Scope.PUBLIC ? publicCacheControl : privateCacheControl;
+
+        CachedPage page = pages.get(key);
+        if (page != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            if (new ServletWebRequest(request, response).checkNotModified(page.etag(), page.lastModified())) {
+                notModifiedCounter.increment();
+                return;
+            }
+            hitCounter.increment();
+            response.setContentType(page.contentType());
+            response.setContentLength(page.body().length);
+            response.getOutputStream().write(page.body());
+            return;
+        }
+
+        missCounter.increment();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        // Кэшируется только обычная отрисовка; перенаправления, ошибки и ответы с cookie отдаются как есть
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK
+                || wrapper.getContentType() == null
+                || !wrapper.getContentType().startsWith("text/html")
+                || wrapper.containsHeader(HttpHeaders.SET_COOKIE)) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        byte[] body = wrapper.getContentAsByteArray();
+        page = new CachedPage(body, wrapper.getContentType(), "\"" + DigestUtils.md5DigestAsHex(body) + "\"",
+                System.currentTimeMillis() / 1000 * 1000);
+        pages.putIfAbsent(key, page);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (!new ServletWebRequest(request, response).checkNotModified(page.etag(), page.lastModified())) {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * Вариант страницы, зависящей от ролей: маска ролей вошедшего пользователя или {@link #ANONYMOUS}.
+     */
+    private static int variant(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.roleMask();
+        }
+        return Role.maskOfNames(authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+    }
+
+    private record Key(String path, int variant) {
+    }
+
+    private record CachedPage(byte[] body, String contentType, String etag, long lastModified) {
+    }
+}
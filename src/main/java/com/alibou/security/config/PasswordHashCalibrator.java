@@ -0,0 +1,175 @@
+package com.alibou.security.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.IntFunction;
+
+/**
+ * Подбирает параметры хэширования паролей под целевое время на текущем железе.
+ * <p>
+ * Выбирается самая высокая стоимость, время хэширования которой укладывается
+ * в {@code auth.password.target-hash-time}, но не ниже заданного минимума. Замер занимает секунды,
+ * поэтому не повторяется на каждом запуске: стоимость можно задать явно
+ * ({@code auth.password.bcrypt.strength}, {@code auth.password.argon2.iterations}), а результат замера
+ * сохраняется в {@code auth.password.calibration-file} и используется, пока не изменились алгоритм,
+ * цель, минимум и число процессоров.
+ * <p>
+ * Хэши сохраняются с префиксом алгоритма ({bcrypt}, {argon2}), а стоимость записана в самом хэше,
+ * поэтому устаревшие хэши распознаются и перехэшируются при входе.
+ */
+@Slf4j
+@Component
+public class PasswordHashCalibrator {
+
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+    private static final int MAX_BCRYPT_STRENGTH = 16;
+    private static final int MAX_ARGON2_ITERATIONS = 16;
+
+    private final String algorithm;
+    private final Duration targetHashTime;
+    private final int minBcryptStrength;
+    private final int argon2MemoryKb;
+    private final int minArgon2Iterations;
+    private final int bcryptStrength;
+    private final int argon2Iterations;
+    private final String calibrationFile;
+
+    public PasswordHashCalibrator(@Value("${auth.password.algorithm:bcrypt}") String algorithm,
+                                  @Value("${auth.password.target-hash-time:250ms}") Duration targetHashTime,
+                                  @Value("${auth.password.bcrypt.min-strength:10}") int minBcryptStrength,
+                                  @Value("${auth.password.argon2.memory-kb:19456}") int argon2MemoryKb,
+                                  @Value("${auth.password.argon2.min-iterations:2}") int minArgon2Iterations,
+                                  @Value("${auth.password.bcrypt.strength:0}") int bcryptStrength,
+                                  @Value("${auth.password.argon2.iterations:0}") int argon2Iterations,
+                                  @Value("${auth.password.calibration-file:}") String calibrationFile) {
+        this.algorithm = algorithm;
+        this.targetHashTime = targetHashTime;
+        this.minBcryptStrength = minBcryptStrength;
+        this.argon2MemoryKb = argon2MemoryKb;
+        this.minArgon2Iterations = minArgon2Iterations;
+        this.bcryptStrength = bcryptStrength;
+        this.argon2Iterations = argon2Iterations;
+        this.calibrationFile = calibrationFile;
+    }
+
+    /**
+     * Создает делегирующий кодировщик: новые пароли хэшируются выбранным алгоритмом
+     * с откалиброванной стоимостью, старые хэши (в том числе без префикса) продолжают проверяться.
+     *
+     * @return кодировщик паролей
+     */
+    public PasswordEncoder createEncoder() {
+        PasswordEncoder bcrypt;
+        PasswordEncoder argon2;
+        if ("argon2".equals(algorithm)) {
+            int iterations = argon2Iterations > 0 ? argon2Iterations : calibrated("argon2 iterations",
+                    minArgon2Iterations, MAX_ARGON2_ITERATIONS, this::argon2);
+            argon2 = argon2(iterations);
+            bcrypt = new BCryptPasswordEncoder(minBcryptStrength);
+        } else if ("bcrypt".equals(algorithm)) {
+            int strength = bcryptStrength > 0 ? bcryptStrength : calibrated("bcrypt strength",
+                    minBcryptStrength, MAX_BCRYPT_STRENGTH, BCryptPasswordEncoder::new);
+            bcrypt = new BCryptPasswordEncoder(strength);
+            argon2 = argon2(minArgon2Iterations);
+        } else {
+            throw new IllegalStateException("Unsupported auth.password.algorithm " + algorithm);
+        }
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(algorithm,
+                Map.of("bcrypt", bcrypt, "argon2", argon2));
+        // Хэши, сохраненные до появления префиксов, - это BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return encoder;
+    }
+
+    private PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(16, 32, 1, argon2MemoryKb, iterations);
+    }
+
+    /**
+     * Стоимость из файла калибровки, если он записан для тех же условий, иначе - новый замер.
+     */
+    private int calibrated(String parameter, int min, int max, IntFunction<PasswordEncoder> encoderForCost) {
+        // Условия, при которых замер действителен; другая машина или настройки - другой ключ
+        String key = String.join(",", algorithm, Long.toString(targetHashTime.toMillis()), Integer.toString(min),
+                Integer.toString(Runtime.getRuntime().availableProcessors()));
+        Properties stored = load();
+        if (key.equals(stored.getProperty("key")) && stored.getProperty("cost") != null) {
+            int cost = Integer.parseInt(stored.getProperty("cost"));
+            log.info("Password hashing calibration loaded from {}: {} = {}", calibrationFile, parameter, cost);
+            return cost;
+        }
+        int cost = calibrate(parameter, min, max, encoderForCost);
+        Properties calibration = new Properties();
+        calibration.setProperty("key", key);
+        calibration.setProperty("cost", Integer.toString(cost));
+        store(calibration);
+        return cost;
+    }
+
+    private Properties load() {
+        Properties properties = new Properties();
+        if (!calibrationFile.isEmpty() && Files.isRegularFile(Path.of(calibrationFile))) {
+            try (InputStream in = Files.newInputStream(Path.of(calibrationFile))) {
+                properties.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Ignoring unreadable password hashing calibration {}", calibrationFile, e);
+                properties.clear();
+            }
+        }
+        return properties;
+    }
+
+    private void store(Properties calibration) {
+        if (calibrationFile.isEmpty()) {
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(Path.of(calibrationFile))) {
+            calibration.store(out, "Password hashing calibration");
+        } catch (IOException e) {
+            // Не критично: на следующем запуске замер повторится
+            log.warn("Failed to save password hashing calibration to {}", calibrationFile, e);
+        }
+    }
+
+    /**
+     * Повышает стоимость, пока время хэширования укладывается в цель.
+     * Каждый шаг замеряется после прогревочного вызова.
+     */
+    private int calibrate(String parameter, int min, int max, IntFunction<PasswordEncoder> encoderForCost) {
+        int chosen = min;
+        long chosenNanos = measure(encoderForCost.apply(min));
+        for (int cost = min + 1; cost <= max; cost++) {
+            long nanos = measure(encoderForCost.apply(cost));
+            if (nanos > targetHashTime.toNanos()) {
+                break;
+            }
+            chosen = cost;
+            chosenNanos = nanos;
+        }
+        log.info("Password hashing calibrated: {} = {} ({} ms per hash, target {} ms)",
+                parameter, chosen, Duration.ofNanos(chosenNanos).toMillis(), targetHashTime.toMillis());
+        return chosen;
+    }
+
+    private static long measure(PasswordEncoder encoder) {
+        encoder.encode(CALIBRATION_PASSWORD);
+        long startedAt = System.nanoTime();
+        encoder.encode(CALIBRATION_PASSWORD);
+        return System.nanoTime() - startedAt;
+    }
+}
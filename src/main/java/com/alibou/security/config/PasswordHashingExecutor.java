@@ -0,0 +1,192 @@
+package com.alibou.security.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Отдельный ограниченный пул для хэширования паролей.
+ * <p>
+ * BCrypt занимает процессор на сотни миллисекунд, поэтому при всплеске входов он не должен
+ * занимать все потоки Tomcat. Количество потоков и длина очереди ограничены; если очередь полна,
+ * запрос сразу отклоняется с {@link PasswordHashingRejectedException}.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    /**
+     * Операции хэширования - значения тега operation метрики auth.password.hash.
+     */
+    public enum HashOperation {
+        ENCODE, MATCHES, REHASH
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+    private final Map<HashOperation, Timer> hashTimers = new EnumMap<>(HashOperation.class);
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${auth.password-hashing.threads:0}") int threads,
+                                   @Value("${auth.password-hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${auth.password-hashing.timeout:5s}") Duration timeout) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeout = timeout;
+
+        Gauge.builder("auth.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing workers busy right now")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("auth.password.queue.wait")
+                .description("Time a password hashing task waited in the queue")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password.rejected")
+                .description("Password hashing tasks rejected because the pool was saturated")
+                .register(meterRegistry);
+        for (HashOperation operation : HashOperation.values()) {
+            hashTimers.put(operation, Timer.builder("auth.password.hash")
+                    .description("Password hashing time on the dedicated pool")
+                    .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Выполняет хэширование в пуле и ждет результата.
+     *
+     * @param operation операция для метрики
+     * @param task      задача хэширования
+     * @return результат задачи
+     * @throws PasswordHashingRejectedException если пул перегружен или ответ не получен вовремя
+     */
+    public <T> T execute(HashOperation operation, Callable<T> task) {
+        Timer hashTimer = hashTimers.get(operation);
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWaitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException("Password hashing pool is saturated");
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Выполняет хэширование в пуле, не блокируя вызывающий поток (для реактивного варианта).
+     *
+     * @param operation операция для метрики
+     * @param task      задача хэширования
+     * @return результат; завершается с {@link PasswordHashingRejectedException},
+     * если пул перегружен или ответ не получен вовремя
+     */
+    public <T> CompletableFuture<T> executeAsync(HashOperation operation, Callable<T> task) {
+        Timer hashTimer = hashTimers.get(operation);
+        long submittedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                queueWaitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(
+                    new PasswordHashingRejectedException("Password hashing pool is saturated"));
+        }
+        return result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> {
+                    if (e instanceof TimeoutException) {
+                        rejectedCounter.increment();
+                        return CompletableFuture.failedFuture(
+                                new PasswordHashingRejectedException("Password hashing timed out"));
+                    }
+                    return CompletableFuture.failedFuture(e);
+                });
+    }
+
+    /**
+     * Выполняет задачу в пуле без ожидания результата (например, фоновое перехэширование).
+     *
+     * @param operation операция для метрики
+     * @param task      задача
+     * @return true, если задача принята в очередь
+     */
+    public boolean submit(HashOperation operation, Runnable task) {
+        Timer hashTimer = hashTimers.get(operation);
+        try {
+            executor.execute(() -> hashTimer.record(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
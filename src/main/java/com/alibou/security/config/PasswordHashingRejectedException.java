@@ -0,0 +1,11 @@
+package com.alibou.security.config;
+
+/**
+ * Пул хэширования паролей перегружен: запрос отклоняется сразу, не дожидаясь очереди.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,49 @@
+package com.alibou.security.config;
+
+import com.alibou.security.config.PasswordHashingExecutor.HashOperation;
+import com.alibou.security.invalidation.InvalidationBus;
+import com.alibou.security.user.UserPrincipal;
+import com.alibou.security.user.UserPrincipalCache;
+import com.alibou.security.user.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Перехэширование паролей с устаревшими параметрами после успешного входа.
+ * Работа выполняется в фоне в пуле хэширования и не задерживает ответ на вход.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PasswordRehashService {
+
+    private final UserRepository repository;
+    private final UserPrincipalCache principalCache;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final OffloadingPasswordEncoder passwordEncoder;
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Ставит перехэширование в очередь, если хэш пользователя устарел.
+     * Если пул занят, перехэширование откладывается до следующего входа.
+     *
+     * @param principal   пользователь, только что прошедший проверку пароля
+     * @param rawPassword  предъявленный пароль
+     */
+    public void rehashIfNeeded(UserPrincipal principal, String rawPassword) {
+        String currentHash = principal.password();
+        if (!passwordEncoder.upgradeEncoding(currentHash)) {
+            return;
+        }
+        passwordHashingExecutor.submit(HashOperation.REHASH, () -> {
+            String newHash = passwordEncoder.delegate().encode(rawPassword);
+            // Обновляем, только если пароль не сменился за это время
+            if (repository.updatePassword(principal.id(), currentHash, newHash) > 0) {
+                principalCache.invalidate(principal.email());
+                invalidationBus.userChanged(principal.email(), principal.securityVersion());
+                log.debug("Upgraded password hash of user {}", principal.id());
+            }
+        });
+    }
+}
@@ -1,13 +1,23 @@
 package com.alibou.security.config;
 
+import com.alibou.security.auth.AuthCookies;
+import com.alibou.security.token.TokenRevocationLogoutHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.security.servlet.PathRequest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import static org.springframework.security.config.http.SessionCreationPolicy.STATELESS;
@@ -15,43 +25,139 @@ import static org.springframework.security.config.http.SessionCreationPolicy.STA
 /**
  * Класс конфигурации для настроек безопасности.
  */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
 public class SecurityConfiguration {
 
+    /**
+     * Открытые пути, ответ которых не зависит от пользователя. Страница приветствия сюда не входит:
+     * ее шаблон показывает разный текст анонимному и вошедшему пользователю.
+     */
+    private static final String[] PUBLIC_PATHS = {"/api/v1/auth/**", "/api/v1/auth2/**", "/api/v1/demo-controller",
+            "/.well-known/**", "/actuator/health/**"};
+
+    /**
+     * Пути для внутренних сервисов. Пользовательский токен на них не нужен: вызывающий сервис
+     * проверяется общим секретом в самом контроллере.
+     */
+    private static final String[] SERVICE_PATHS = {"/api/v1/introspect"};
+
+    /**
+     * Метрики для Prometheus: сборщик предъявляет {@link MetricsScrapeToken}, а не пользовательский вход.
+     */
+    private static final String PROMETHEUS_PATH = "/actuator/prometheus";
+
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final AuthenticationProvider authenticationProvider;
+    private final TokenRevocationLogoutHandler tokenRevocationLogoutHandler;
+    private final MetricsScrapeToken metricsScrapeToken;
 
     /**
-     * Определяет цепочку фильтров безопасности.
+     * Облегченная цепочка для открытых путей, путей внутренних сервисов и статических ресурсов:
+     * без фильтра JWT, анонимной аутентификации, кэша запросов и выхода, поэтому cookie не разбираются,
+     * токен не проверяется и пользователь не загружается. Проверяется первой.
      *
      * @param http объект HttpSecurity
      * @return объект SecurityFilterChain
      * @throws Exception если произошла ошибка
      */
     @Bean
+    @Order(1)
+    public SecurityFilterChain publicFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatchers(matchers -> matchers
+                        .requestMatchers(PUBLIC_PATHS)
+                        .requestMatchers(SERVICE_PATHS)
+                        .requestMatchers(PathRequest.toStaticResources().atCommonLocations()))
+                .authorizeHttpRequests(authorize -> authorize.anyRequest().permitAll())
+                .csrf(AbstractHttpConfigurer::disable)
+                .anonymous(AbstractHttpConfigurer::disable)
+                .requestCache(AbstractHttpConfigurer::disable)
+                .logout(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(STATELESS));
+
+        return http.build();
+    }
+
+    /**
+     * Цепочка для сбора метрик: без фильтра JWT и cookie, доступ только с токеном сборщика.
+     *
+     * @param http объект HttpSecurity
+     * @return объект SecurityFilterChain
+     * @throws Exception если произошла ошибка
+     */
+    @Bean
+    @Order(2)
+    public SecurityFilterChain metricsScrapeFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(PROMETHEUS_PATH)
+                .authorizeHttpRequests(authorize -> authorize.anyRequest().access((authentication, context) ->
+                        new AuthorizationDecision(metricsScrapeToken.matches(
+                                context.getRequest().getHeader(HttpHeaders.AUTHORIZATION)))))
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .csrf(AbstractHttpConfigurer::disable)
+                .requestCache(AbstractHttpConfigurer::disable)
+                .logout(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(STATELESS));
+
+        return http.build();
+    }
+
+    /**
+     * Определяет цепочку фильтров безопасности для остальных путей.
+     *
+     * @param http объект HttpSecurity
+     * @return объект SecurityFilterChain
+     * @throws Exception если произошла ошибка
+     */
+    @Bean
+    @Order(3)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeRequests()
-                .requestMatchers("/api/v1/auth/**", "/api/v1/auth2/**", "/api/v1/greeting-controller/**")
+                .requestMatchers("/api/v1/greeting-controller/**")
                 .permitAll()
                 .requestMatchers("/api/v1/demo-controller/with-auth", "/api/v1/index-controller/**")
                 .hasAnyAuthority("USER")
                 .requestMatchers("/api/v1/demo-controller/**")
                 .permitAll()
+                // Метрики раскрывают нагрузку и состав запросов, поэтому доступны только администраторам;
+                // Prometheus собирает их через отдельную цепочку с токеном сборщика
+                .requestMatchers("/actuator/**")
+                .hasAnyAuthority("ADMIN")
+                .requestMatchers("/api/v1/admin/**")
+                .hasAnyAuthority("ADMIN")
                 .and().formLogin(form -> form
                         .loginPage("/api/v1/auth2/login-page")
                         .failureUrl("/api/v1/auth2/login-page"))
                 .logout(logout -> logout
                         .logoutUrl("/logout")
+                        .addLogoutHandler(tokenRevocationLogoutHandler)
                         .logoutSuccessUrl("/api/v1/auth2/login-page")
-                        .deleteCookies("token"))
+                        .deleteCookies(AuthCookies.ACCESS_TOKEN, AuthCookies.REFRESH_TOKEN))
                 .sessionManagement(session -> session.sessionCreationPolicy(STATELESS))
                 .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
+
+    /**
+     * Фильтр JWT - компонент, и без этого Spring Boot зарегистрировал бы его еще и обычным фильтром сервлета
+     * для всех запросов, включая открытые пути. Он должен работать только внутри цепочки безопасности.
+     *
+     * @param filter фильтр JWT
+     * @return отключенная регистрация фильтра
+     */
+    @Bean
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration(
+            JwtAuthenticationFilter filter) {
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
 }
@@ -0,0 +1,35 @@
+package com.alibou.security.config;
+
+/**
+ * Результат проверки JWT-токена без выбрасывания исключений.
+ *
+ * @param status статус проверки
+ * @param token  проверенный токен; есть только для статусов VALID и EXPIRED
+ */
+public record TokenVerification(Status status, VerifiedToken token) {
+
+    /**
+     * Статус проверки токена.
+     */
+    public enum Status {
+        VALID,
+        EXPIRED,
+        BAD_SIGNATURE,
+        MALFORMED
+    }
+
+    static final TokenVerification BAD_SIGNATURE = new TokenVerification(Status.BAD_SIGNATURE, null);
+    static final TokenVerification MALFORMED = new TokenVerification(Status.MALFORMED, null);
+
+    static TokenVerification valid(VerifiedToken token) {
+        return new TokenVerification(Status.VALID, token);
+    }
+
+    static TokenVerification expired(VerifiedToken token) {
+        return new TokenVerification(Status.EXPIRED, token);
+    }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+}
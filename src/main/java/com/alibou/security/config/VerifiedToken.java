@@ -0,0 +1,115 @@
+package com.alibou.security.config;
+
+import com.alibou.security.user.Role;
+import com.alibou.security.user.UserPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый результат проверки JWT-токена: подпись уже проверена, claims разобраны.
+ *
+ * @param subject   имя пользователя (email) из токена
+ * @param issuedAt  время выпуска токена
+ * @param expiresAt время истечения срока действия токена
+ * @param claims    все claims токена (только для чтения)
+ */
+public record VerifiedToken(String subject,
+                            Instant issuedAt,
+                            Instant expiresAt,
+                            Map<String, Object> claims) {
+
+    /**
+     * Создает проверенный токен из разобранных claims.
+     *
+     * @param claims claims, полученные после проверки подписи
+     * @return проверенный токен
+     */
+    static VerifiedToken from(Map<String, Object> claims) {
+        return new VerifiedToken(
+                claims.get("sub") instanceof String subject ? subject : null,
+                epochSeconds(claims.get("iat")),
+                epochSeconds(claims.get("exp")),
+                Collections.unmodifiableMap(new LinkedHashMap<>(claims)));
+    }
+
+    private static Instant epochSeconds(Object value) {
+        return value instanceof Number seconds ? Instant.ofEpochSecond(seconds.longValue()) : null;
+    }
+
+    /**
+     * Проверяет, истек ли срок действия токена.
+     *
+     * @return true, если срок действия истек
+     */
+    public boolean isExpired() {
+        return expiresAt != null && expiresAt.isBefore(Instant.now());
+    }
+
+    /**
+     * Проверяет, что токен не истек и выпущен для указанного пользователя.
+     *
+     * @param userDetails сведения о пользователе
+     * @return true, если токен действителен для пользователя
+     */
+    public boolean isValidFor(UserDetails userDetails) {
+        return subject != null && subject.equals(userDetails.getUsername()) && !isExpired();
+    }
+
+    /**
+     * Возвращает идентификатор токена (jti), по которому токен можно отозвать.
+     *
+     * @return jti или null для токенов, выпущенных без него
+     */
+    public String id() {
+        return claim("jti", String.class);
+    }
+
+    /**
+     * Возвращает роли, подписанные в токене.
+     *
+     * @return имена ролей или пустой список, если claim отсутствует
+     */
+    public List<String> roles() {
+        List<?> roles = claim(JwtService.ROLES_CLAIM, List.class);
+        return roles == null ? List.of() : roles.stream().map(String::valueOf).toList();
+    }
+
+    /**
+     * Строит пользователя только по claims - для аутентификации без загрузки из базы данных.
+     * Полномочия берутся из общих списков {@link Role#authorities(int)}.
+     *
+     * @return пользователь без хэша пароля
+     */
+    public UserPrincipal principal() {
+        Number userId = claim(JwtService.USER_ID_CLAIM, Number.class);
+        return new UserPrincipal(userId == null ? null : userId.intValue(), subject,
+                null, Role.maskOfNames(roles()), securityVersion());
+    }
+
+    /**
+     * Возвращает версию безопасности пользователя, подписанную в токене.
+     *
+     * @return версия или 0, если claim отсутствует
+     */
+    public int securityVersion() {
+        Number version = claim(JwtService.VERSION_CLAIM, Number.class);
+        return version == null ? 0 : version.intValue();
+    }
+
+    /**
+     * Возвращает значение claim указанного типа.
+     *
+     * @param name имя claim
+     * @param type ожидаемый тип значения
+     * @return значение claim или null, если его нет или тип не совпадает
+     */
+    public <T> T claim(String name, Class<T> type) {
+        Object value = claims.get(name);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+}
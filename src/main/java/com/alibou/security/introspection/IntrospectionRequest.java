@@ -0,0 +1,11 @@
+package com.alibou.security.introspection;
+
+import java.util.List;
+
+/**
+ * Пакет токенов на проверку.
+ *
+ * @param tokens значения cookie {@code token} в порядке запросов шлюза
+ */
+public record IntrospectionRequest(List<String> tokens) {
+}
@@ -0,0 +1,17 @@
+package com.alibou.security.introspection;
+
+/**
+ * Результат проверки одного токена при интроспекции. Решение то же, что принимает
+ * {@link com.alibou.security.config.JwtAuthenticationFilter} для cookie токена.
+ */
+public enum IntrospectionStatus {
+    // Токен принят, пользователь найден
+    ACTIVE,
+    EXPIRED,
+    BAD_SIGNATURE,
+    MALFORMED,
+    // Токен отозван при выходе или ротации
+    REVOKED,
+    // Пользователь удален после выпуска токена
+    USER_NOT_FOUND
+}
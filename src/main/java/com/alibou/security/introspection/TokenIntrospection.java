@@ -0,0 +1,21 @@
+package com.alibou.security.introspection;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Результат проверки одного токена.
+ *
+ * @param status      статус токена
+ * @param subject     email пользователя; есть, если подпись токена верна
+ * @param authorities текущие полномочия пользователя; пустые, если токен не принят
+ * @param expiresAt   время истечения срока действия токена; есть, если подпись токена верна
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TokenIntrospection(IntrospectionStatus status,
+                                 String subject,
+                                 List<String> authorities,
+                                 Instant expiresAt) {
+}
@@ -0,0 +1,63 @@
+package com.alibou.security.introspection;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Пакетная интроспекция токенов для внутренних сервисов: шлюз проверяет токены всей пачки
+ * запросов за один вызов вместо вызова на каждый запрос.
+ * <p>
+ * Вызывающий сервис предъявляет общий секрет {@code auth.introspection.secret} в заголовке
+ * {@value #SECRET_HEADER}. Без настроенного секрета интроспекция выключена и отвечает 404.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/api/v1/introspect")
+public class TokenIntrospectionController {
+
+    static final String SECRET_HEADER = "X-Introspection-Secret";
+
+    private final TokenIntrospectionService introspectionService;
+    private final byte[] secret;
+    private final int maxBatchSize;
+
+    public TokenIntrospectionController(TokenIntrospectionService introspectionService,
+                                        @Value("${auth.introspection.secret:}") String secret,
+                                        @Value("${auth.introspection.max-batch-size:1000}") int maxBatchSize) {
+        this.introspectionService = introspectionService;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @PostMapping
+    public ResponseEntity<List<TokenIntrospection>> introspect(
+            @RequestHeader(value = SECRET_HEADER, required = false) String presentedSecret,
+            @RequestBody IntrospectionRequest request) {
+        if (secret.length == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        // Сравнение за постоянное время, чтобы секрет нельзя было подобрать по времени ответа
+        if (presentedSecret == null
+                || !MessageDigest.isEqual(secret, presentedSecret.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (request.tokens() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (request.tokens().size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(introspectionService.introspect(request.tokens()));
+    }
+}
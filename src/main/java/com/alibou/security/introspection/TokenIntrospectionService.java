@@ -0,0 +1,178 @@
+package com.alibou.security.introspection;
+
+import com.alibou.security.config.JwtService;
+import com.alibou.security.config.TokenVerification;
+import com.alibou.security.config.VerifiedToken;
+import com.alibou.security.token.TokenDenylist;
+import com.alibou.security.user.UserPrincipal;
+import com.alibou.security.user.UserPrincipalCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пакетная проверка токенов для других сервисов.
+ * <p>
+ * Подписи проверяются параллельно в отдельном пуле по числу процессоров: пакет делится на части,
+ * одну из них проверяет поток запроса. Маленькие пакеты проверяются в потоке запроса целиком -
+ * передача в пул дороже проверки токена из кэша {@link JwtService}. Пользователи всего пакета
+ * берутся из {@link UserPrincipalCache}, промахи загружаются одним запросом к базе.
+ * Решение по каждому токену то же, что у фильтра JWT: отозванные, истекшие и токены удаленных
+ * пользователей не принимаются, полномочия - текущие полномочия пользователя.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Service
+public class TokenIntrospectionService {
+
+    private final JwtService jwtService;
+    private final TokenDenylist denylist;
+    private final UserPrincipalCache principalCache;
+    private final int parallelThreshold;
+    private final int parallelism;
+    private final ExecutorService verifyPool;
+    private final Map<IntrospectionStatus, Counter> statusCounters = new EnumMap<>(IntrospectionStatus.class);
+
+    public TokenIntrospectionService(JwtService jwtService,
+                                     TokenDenylist denylist,
+                                     UserPrincipalCache principalCache,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${auth.introspection.threads:0}") int threads,
+                                     @Value("${auth.introspection.parallel-threshold:32}") int parallelThreshold) {
+        this.jwtService = jwtService;
+        this.denylist = denylist;
+        this.principalCache = principalCache;
+        this.parallelThreshold = parallelThreshold;
+        this.parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.verifyPool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "introspection-verify-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (IntrospectionStatus status : IntrospectionStatus.values()) {
+            statusCounters.put(status, Counter.builder("auth.introspection.tokens")
+                    .description("Tokens checked by batch introspection by status")
+                    .tag("status", status.name().toLowerCase(Locale.ROOT).replace('_', '-'))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Проверяет пакет токенов.
+     *
+     * @param tokens токены; null проверяется как поврежденный токен
+     * @return результаты в порядке токенов
+     */
+    public List<TokenIntrospection> introspect(List<String> tokens) {
+        TokenVerification[] verifications = verify(tokens);
+
+        // Статус считается один раз на токен: для активного токена это проверка денайлиста
+        IntrospectionStatus[] statuses = new IntrospectionStatus[verifications.length];
+        Set<String> subjects = new HashSet<>();
+        for (int i = 0; i < verifications.length; i++) {
+            statuses[i] = status(verifications[i]);
+            if (statuses[i] == IntrospectionStatus.ACTIVE) {
+                subjects.add(verifications[i].token().subject());
+            }
+        }
+        Map<String, UserPrincipal> principals = principalCache.findAllByEmail(subjects);
+
+        List<TokenIntrospection> results = new ArrayList<>(verifications.length);
+        for (int i = 0; i < verifications.length; i++) {
+            TokenIntrospection result = result(verifications[i], statuses[i], principals);
+            statusCounters.get(result.status()).increment();
+            results.add(result);
+        }
+        return results;
+    }
+
+    private TokenVerification[] verify(List<String> tokens) {
+        TokenVerification[] verifications = new TokenVerification[tokens.size()];
+        if (tokens.size() < parallelThreshold || parallelism == 1) {
+            verifyRange(tokens, verifications, 0, tokens.size());
+            return verifications;
+        }
+        int chunkSize = (tokens.size() + parallelism - 1) / parallelism;
+        List<CompletableFuture<Void>> chunks = new ArrayList<>(parallelism);
+        for (int from = chunkSize; from < tokens.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, tokens.size());
+            chunks.add(CompletableFuture.runAsync(() -> verifyRange(tokens, verifications, start, end), verifyPool));
+        }
+        verifyRange(tokens, verifications, 0, chunkSize);
+        try {
+            // join также публикует записи других потоков в массив
+            CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return verifications;
+    }
+
+    private void verifyRange(List<String> tokens, TokenVerification[] verifications, int from, int to) {
+        for (int i = from; i < to; i++) {
+            verifications[i] = jwtService.tryVerify(tokens.get(i));
+        }
+    }
+
+    /**
+     * Статус токена без учета пользователя.
+     */
+    private IntrospectionStatus status(TokenVerification verification) {
+        return switch (verification.status()) {
+            case VALID -> {
+                VerifiedToken token = verification.token();
+                if (token.isExpired()) {
+                    yield IntrospectionStatus.EXPIRED;
+                }
+                if (token.subject() == null) {
+                    yield IntrospectionStatus.MALFORMED;
+                }
+                yield denylist.isRevoked(token.id()) ? IntrospectionStatus.REVOKED : IntrospectionStatus.ACTIVE;
+            }
+            case EXPIRED -> IntrospectionStatus.EXPIRED;
+            case BAD_SIGNATURE -> IntrospectionStatus.BAD_SIGNATURE;
+            case MALFORMED -> IntrospectionStatus.MALFORMED;
+        };
+    }
+
+    private TokenIntrospection result(TokenVerification verification, IntrospectionStatus status,
+                                      Map<String, UserPrincipal> principals) {
+        VerifiedToken token = verification.token();
+        if (token == null) {
+            return new TokenIntrospection(status, null, List.of(), null);
+        }
+        List<String> authorities = List.of();
+        if (status == IntrospectionStatus.ACTIVE) {
+            UserPrincipal principal = principals.get(token.subject());
+            if (principal == null) {
+                status = IntrospectionStatus.USER_NOT_FOUND;
+            } else {
+                authorities = principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+            }
+        }
+        return new TokenIntrospection(status, token.subject(), authorities, token.expiresAt());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        verifyPool.shutdown();
+    }
+}
@@ -0,0 +1,13 @@
+package com.alibou.security.invalidation;
+
+import java.util.List;
+
+/**
+ * Пакет событий одного узла.
+ *
+ * @param node     идентификатор узла-отправителя
+ * @param sequence номер пакета у отправителя; номера идут подряд, пропуск означает потерю пакета
+ * @param events   события, по одному на ключ
+ */
+record InvalidationBatch(String node, long sequence, List<InvalidationEvent> events) {
+}
@@ -0,0 +1,342 @@
+package com.alibou.security.invalidation;
+
+import com.alibou.security.invalidation.InvalidationEvent.Key;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Шина инвалидации кэшей между узлами.
+ * <p>
+ * События копятся и раз в {@code auth.invalidation.flush-interval} уходят пакетами; события по одному
+ * ключу внутри интервала схлопываются в одно. Пакеты узла нумеруются подряд и отправляются одним потоком,
+ * а получатель применяет их по порядку, поэтому события по одному ключу от одного узла не переставляются.
+ * События разных узлов коммутативны: сброс записи кэша идемпотентен, версия и срок отзыва только растут.
+ * Если номер пакета пропущен или транспорт сообщил о потере сообщений, локальные кэши сбрасываются целиком.
+ * <p>
+ * Пакет, который не удалось отправить, повторяется при следующей отправке раньше новых пакетов.
+ * Если узлу нечего отправлять дольше {@code auth.invalidation.heartbeat-interval}, он отправляет пустой
+ * пакет с номером последнего пакета: получатель, не получивший последний пакет, обнаружит пропуск
+ * не позже чем через этот интервал, даже если новых событий больше нет.
+ * <p>
+ * Шина только оповещает другие узлы: на текущем узле вызывающий код сбрасывает кэши сам.
+ * Внутри транзакции событие ставится в очередь после фиксации, чтобы другие узлы не перечитали старые данные.
+ */
+@Slf4j
+@Component
+public class InvalidationBus {
+
+    // Идентификатор узла, номер пакета и служебные поля JSON
+    private static final int BATCH_OVERHEAD = 128;
+
+    private final InvalidationTransport transport;
+    private final List<InvalidationHandler> handlers;
+    private final ObjectMapper objectMapper;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Key, InvalidationEvent> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock receiveLock = new ReentrantLock();
+    private final ScheduledExecutorService executor;
+    private final Duration flushInterval;
+    private final long heartbeatIntervalNanos;
+    private final Counter sentCounter;
+    private final Counter receivedCounter;
+    private final Counter fullFlushCounter;
+
+    // Номер последнего примененного пакета по узлам. Ограничение только по числу узлов: по времени
+    // забывать нельзя - после долгой паузы пропуск в номерах узла остался бы незамеченным
+    private final Cache<String, Long> lastSequences = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .build();
+
+    // Пронумерованные, но еще не отправленные пакеты; доступ только под flushLock
+    private final Deque<Unsent> unsent = new ArrayDeque<>();
+    private long sequence;
+    private long lastSentAt = System.nanoTime();
+
+    public InvalidationBus(InvalidationTransport transport,
+                           List<InvalidationHandler> handlers,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${auth.invalidation.flush-interval:20ms}") Duration flushInterval,
+                           @Value("${auth.invalidation.heartbeat-interval:5s}") Duration heartbeatInterval) {
+        this.transport = transport;
+        this.handlers = List.copyOf(handlers);
+        this.objectMapper = objectMapper;
+        this.flushInterval = flushInterval;
+        this.heartbeatIntervalNanos = heartbeatInterval.toNanos();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sentCounter = eventCounter(meterRegistry, "sent");
+        this.receivedCounter = eventCounter(meterRegistry, "received");
+        this.fullFlushCounter = Counter.builder("auth.invalidation.full-flushes")
+                .description("Full cache flushes after lost invalidation messages")
+                .register(meterRegistry);
+    }
+
+    private static Counter eventCounter(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("auth.invalidation.events")
+                .description("Cache invalidation events exchanged with other nodes")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        transport.start(new InvalidationTransport.Listener() {
+            @Override
+            public void onMessage(String payload) {
+                receive(payload);
+            }
+
+            @Override
+            public void onGap() {
+                fullFlush("transport reported lost messages");
+            }
+        });
+        long interval = flushInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Оповещает другие узлы об изменении пользователя.
+     *
+     * @param email           email пользователя
+     * @param securityVersion актуальная версия безопасности
+     */
+    public void userChanged(String email, int securityVersion) {
+        enqueue(InvalidationEvent.user(email, securityVersion));
+    }
+
+    /**
+     * Оповещает другие узлы об отзыве токена.
+     *
+     * @param tokenId   jti токена
+     * @param expiresAt время истечения срока действия токена
+     */
+    public void tokenRevoked(String tokenId, Instant expiresAt) {
+        if (tokenId != null && expiresAt != null) {
+            enqueue(InvalidationEvent.token(tokenId, expiresAt));
+        }
+    }
+
+    private void enqueue(InvalidationEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.merge(event.coalescingKey(), event, InvalidationEvent::merge);
+                }
+            });
+        } else {
+            pending.merge(event.coalescingKey(), event, InvalidationEvent::merge);
+        }
+    }
+
+    /**
+     * Отправляет накопленные события. Пакет делится по ограничению длины сообщения транспорта.
+     * Пока не отправлены ранее не ушедшие пакеты, новые события остаются в очереди.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (!sendUnsent()) {
+                return;
+            }
+            if (pending.isEmpty()) {
+                if (System.nanoTime() - lastSentAt >= heartbeatIntervalNanos) {
+                    heartbeat();
+                }
+                return;
+            }
+            List<InvalidationEvent> batch = new ArrayList<>();
+            int length = BATCH_OVERHEAD;
+            for (Key key : pending.keySet()) {
+                InvalidationEvent event = pending.remove(key);
+                if (event == null) {
+                    continue;
+                }
+                int eventLength = objectMapper.writeValueAsBytes(event).length + 1;
+                if (!batch.isEmpty() && length + eventLength > transport.maxPayloadLength()) {
+                    if (!send(batch)) {
+                        return;
+                    }
+                    batch = new ArrayList<>();
+                    length = BATCH_OVERHEAD;
+                }
+                batch.add(event);
+                length += eventLength;
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Нумерует пакет и отправляет его вслед за неотправленными.
+     *
+     * @return false, если транспорт недоступен и пакет остался на повтор
+     */
+    private boolean send(List<InvalidationEvent> events) throws JsonProcessingException {
+        unsent.add(new Unsent(objectMapper.writeValueAsString(new InvalidationBatch(nodeId, ++sequence, events)),
+                events.size()));
+        return sendUnsent();
+    }
+
+    /**
+     * Отправляет неотправленные пакеты по порядку номеров.
+     *
+     * @return true, если все отправлены
+     */
+    private boolean sendUnsent() {
+        Unsent batch;
+        while ((batch = unsent.peek()) != null) {
+            try {
+                transport.send(batch.payload());
+            } catch (RuntimeException e) {
+                log.warn("Failed to publish cache invalidations, {} batches will be retried", unsent.size(), e);
+                return false;
+            }
+            unsent.remove();
+            lastSentAt = System.nanoTime();
+            sentCounter.increment(batch.events());
+        }
+        return true;
+    }
+
+    /**
+     * Пустой пакет с номером последнего пакета: по нему получатели обнаруживают потерю последних пакетов.
+     */
+    private void heartbeat() throws JsonProcessingException {
+        try {
+            transport.send(objectMapper.writeValueAsString(new InvalidationBatch(nodeId, sequence, List.of())));
+            lastSentAt = System.nanoTime();
+        } catch (RuntimeException e) {
+            log.debug("Failed to publish cache invalidation heartbeat", e);
+        }
+    }
+
+    private void receive(String payload) {
+        receiveLock.lock();
+        try {
+            InvalidationBatch batch;
+            try {
+                batch = objectMapper.readValue(payload, InvalidationBatch.class);
+            } catch (JsonProcessingException e) {
+                fullFlush("unreadable message");
+                return;
+            }
+            if (nodeId.equals(batch.node())) {
+                return;
+            }
+            Long last = lastSequences.getIfPresent(batch.node());
+            if (batch.events().isEmpty()) {
+                heartbeat(batch, last);
+                return;
+            }
+            if (last != null && batch.sequence() <= last) {
+                return;
+            }
+            if (last != null && batch.sequence() != last + 1) {
+                fullFlush("missed batches " + (last + 1) + ".." + (batch.sequence() - 1) + " from " + batch.node());
+            }
+            lastSequences.put(batch.node(), batch.sequence());
+            batch.events().forEach(this::apply);
+            receivedCounter.increment(batch.events().size());
+        } finally {
+            receiveLock.unlock();
+        }
+    }
+
+    /**
+     * Пустой пакет несет номер последнего отправленного пакета узла; номер больше примененного - пропуск.
+     */
+    private void heartbeat(InvalidationBatch batch, Long last) {
+        if (last != null && batch.sequence() <= last) {
+            return;
+        }
+        if (last != null) {
+            fullFlush("missed batches " + (last + 1) + ".." + batch.sequence() + " from " + batch.node());
+        }
+        lastSequences.put(batch.node(), batch.sequence());
+    }
+
+    private void apply(InvalidationEvent event) {
+        for (InvalidationHandler handler : handlers) {
+            try {
+                switch (event.kind()) {
+                    case USER -> handler.onUserChanged(event.key(), (int) event.value());
+                    case TOKEN -> handler.onTokenRevoked(event.key(), Instant.ofEpochSecond(event.value()));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation handler {} failed", handler.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private void fullFlush(String reason) {
+        receiveLock.lock();
+        try {
+            log.warn("Flushing local caches: {}", reason);
+            fullFlushCounter.increment();
+            for (InvalidationHandler handler : handlers) {
+                try {
+                    handler.onFullFlush();
+                } catch (RuntimeException e) {
+                    log.warn("Cache invalidation handler {} failed", handler.getClass().getSimpleName(), e);
+                }
+            }
+        } finally {
+            receiveLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to publish cache invalidations", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        flushQuietly();
+    }
+
+    private record Unsent(String payload, int events) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.alibou.security.invalidation;
+
+import java.time.Instant;
+
+/**
+ * Событие инвалидации кэшей, рассылаемое другим узлам.
+ *
+ * @param kind  вид события
+ * @param key   email пользователя или jti токена
+ * @param value версия безопасности пользователя или время истечения токена (секунды эпохи)
+ */
+public record InvalidationEvent(Kind kind, String key, long value) {
+
+    /**
+     * Вид события.
+     */
+    public enum Kind {
+        /**
+         * Изменились данные или роли пользователя.
+         */
+        USER,
+        /**
+         * Токен доступа отозван.
+         */
+        TOKEN
+    }
+
+    static InvalidationEvent user(String email, int securityVersion) {
+        return new InvalidationEvent(Kind.USER, email, securityVersion);
+    }
+
+    static InvalidationEvent token(String tokenId, Instant expiresAt) {
+        return new InvalidationEvent(Kind.TOKEN, tokenId, expiresAt.getEpochSecond());
+    }
+
+    /**
+     * Ключ объединения: события одного вида по одному ключу в пределах пакета схлопываются.
+     */
+    Key coalescingKey() {
+        return new Key(kind, key);
+    }
+
+    /**
+     * Объединяет два события по одному ключу: версия и время истечения только растут.
+     */
+    static InvalidationEvent merge(InvalidationEvent first, InvalidationEvent second) {
+        return first.value >= second.value ? first : second;
+    }
+
+    record Key(Kind kind, String key) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.alibou.security.invalidation;
+
+import java.time.Instant;
+
+/**
+ * Локальный кэш, который нужно сбрасывать по событиям с других узлов.
+ * Все бины этого типа подписываются на {@link InvalidationBus} автоматически.
+ * Методы вызываются из одного потока в порядке получения пакетов.
+ */
+public interface InvalidationHandler {
+
+    /**
+     * Пользователь изменен на другом узле.
+     *
+     * @param email           email пользователя
+     * @param securityVersion актуальная версия безопасности
+     */
+    default void onUserChanged(String email, int securityVersion) {
+    }
+
+    /**
+     * Токен отозван на другом узле.
+     *
+     * @param tokenId   jti токена
+     * @param expiresAt время истечения срока действия токена
+     */
+    default void onTokenRevoked(String tokenId, Instant expiresAt) {
+    }
+
+    /**
+     * Часть событий могла быть потеряна: кэш нужно сбросить целиком.
+     */
+    void onFullFlush();
+}
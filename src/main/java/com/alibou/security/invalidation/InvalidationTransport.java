@@ -0,0 +1,46 @@
+package com.alibou.security.invalidation;
+
+/**
+ * Транспорт пакетов инвалидации между узлами. Реализация выбирается
+ * настройкой {@code auth.invalidation.transport}: postgres или loopback.
+ * <p>
+ * Транспорт должен доставлять сообщения одного отправителя в порядке отправки;
+ * потерю сообщений (например, при переподключении) он сообщает через {@link Listener#onGap()}.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * @return максимальная длина сообщения в байтах UTF-8
+     */
+    int maxPayloadLength();
+
+    /**
+     * Отправляет сообщение всем узлам, включая текущий.
+     *
+     * @param payload сообщение
+     */
+    void send(String payload);
+
+    /**
+     * Начинает прием сообщений.
+     *
+     * @param listener получатель
+     */
+    void start(Listener listener);
+
+    /**
+     * Получатель сообщений транспорта.
+     */
+    interface Listener {
+
+        /**
+         * @param payload полученное сообщение
+         */
+        void onMessage(String payload);
+
+        /**
+         * Сообщения могли быть потеряны.
+         */
+        void onGap();
+    }
+}
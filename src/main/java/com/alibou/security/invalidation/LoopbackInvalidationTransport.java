@@ -0,0 +1,33 @@
+package com.alibou.security.invalidation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Транспорт внутри процесса: сообщение сразу доставляется всем подписчикам в потоке отправителя.
+ * Подходит для одного узла и для тестов, где несколько {@link InvalidationBus} делят один транспорт.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.invalidation.transport", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public int maxPayloadLength() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void send(String payload) {
+        listeners.forEach(listener -> listener.onMessage(payload));
+    }
+
+    @Override
+    public void start(Listener listener) {
+        listeners.add(listener);
+    }
+}
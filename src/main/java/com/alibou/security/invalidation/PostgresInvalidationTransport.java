@@ -0,0 +1,124 @@
+package com.alibou.security.invalidation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * Транспорт на Postgres LISTEN/NOTIFY.
+ * <p>
+ * Отправка - {@code pg_notify} через общий пул соединений; уведомления доставляются в порядке фиксации,
+ * а пакеты отправляются по одному, так что порядок отправки сохраняется. Прием идет по отдельному
+ * соединению вне пула в своем потоке. Пока соединение потеряно, уведомления не копятся,
+ * поэтому после переподключения шина сбрасывает кэши целиком.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "auth.invalidation.transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements InvalidationTransport {
+
+    // Ограничение Postgres на длину сообщения NOTIFY - 8000 байт
+    private static final int MAX_PAYLOAD_LENGTH = 7999;
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final String channel;
+    private final Duration reconnectDelay;
+    private volatile boolean running = true;
+    private Thread listenerThread;
+
+    public PostgresInvalidationTransport(JdbcTemplate jdbcTemplate,
+                                         DataSourceProperties dataSourceProperties,
+                                         @Value("${auth.invalidation.channel:auth_invalidation}") String channel,
+                                         @Value("${auth.invalidation.reconnect-delay:5s}") Duration reconnectDelay) {
+        // Имя канала в LISTEN нельзя передать параметром, поэтому оно проверяется
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid invalidation channel name: " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.channel = channel;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public int maxPayloadLength() {
+        return MAX_PAYLOAD_LENGTH;
+    }
+
+    @Override
+    public void send(String payload) {
+        jdbcTemplate.execute("select pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) statement -> {
+            statement.setString(1, channel);
+            statement.setString(2, payload);
+            return statement.execute();
+        });
+    }
+
+    @Override
+    public void start(Listener listener) {
+        listenerThread = new Thread(() -> listen(listener), "invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    private void listen(Listener listener) {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (reconnecting) {
+                    listener.onGap();
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            listener.onMessage(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Invalidation listener lost its connection, reconnecting in {}", reconnectDelay, e);
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            reconnecting = true;
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.alibou.security.token;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Refresh-токен не найден, истек, отозван или уже был использован.
+ */
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.alibou.security.token;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище отозванных токенов по умолчанию - таблица revoked_tokens.
+ */
+@Component
+@RequiredArgsConstructor
+public class JpaRevocationStore implements RevocationStore {
+
+    private final RevokedTokenRepository repository;
+
+    @Override
+    public Map<String, Instant> loadActive(Instant now) {
+        return repository.findByExpiresAtAfter(now).stream()
+                .collect(Collectors.toMap(RevokedToken::getTokenId, RevokedToken::getExpiresAt));
+    }
+
+    @Override
+    public void onRevoked(String tokenId, Instant expiresAt) {
+        repository.save(RevokedToken.builder()
+                .tokenId(tokenId)
+                .expiresAt(expiresAt)
+                .build());
+    }
+
+    @Override
+    public void purgeExpired(Instant now) {
+        repository.deleteExpired(now);
+    }
+}
@@ -0,0 +1,46 @@
+package com.alibou.security.token;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Refresh-токен. Сам токен не хранится - только его SHA-256, который служит первичным ключом.
+ * Токены одной цепочки ротаций объединены в семейство: при повторном использовании
+ * уже использованного токена отзывается все семейство.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "refresh_tokens", indexes = @Index(name = "idx_refresh_tokens_family", columnList = "family_id"))
+public class RefreshToken {
+
+    @Id
+    @Column(name = "token_hash", length = 64)
+    private String tokenHash;
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Токен уже обменян на новую пару и повторно не принимается
+    private boolean used;
+
+    // Семейство токена отозвано
+    private boolean revoked;
+}
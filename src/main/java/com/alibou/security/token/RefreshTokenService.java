@@ -0,0 +1,170 @@
+package com.alibou.security.token;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Выпуск и ротация одноразовых refresh-токенов.
+ * <p>
+ * Обмен refresh-токена стоит один поиск по первичному ключу (хэшу токена) - без проверки пароля.
+ * Каждый токен принимается один раз; повторное использование означает утечку,
+ * и тогда отзывается все семейство токенов.
+ * <p>
+ * Рассчитано на один узел или липкие сессии по refresh-токену. Только что выпущенный токен
+ * ({@link RefreshTokenWriter#pending(String)}), отметка об использовании и защита от одновременных обменов
+ * до записи в базу - до {@code auth.refresh-token.flush-interval} - есть лишь в памяти выпустившего узла.
+ * Другой узел в это окно отвечает на такой токен "Unknown refresh token", а один и тот же токен
+ * может быть обменян по разу на каждом узле. Шина инвалидации эти данные не передает.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepository repository;
+    private final RefreshTokenWriter writer;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+
+    // Защита от гонки двух одновременных обменов: запрос мог прочитать токен из базы
+    // до записи отметки, а проверить отметки писателя - уже после ее записи.
+    // Незаписанные изменения хранит сам RefreshTokenWriter до успешной записи
+    private final Cache<String, Boolean> consumed;
+    private final Cache<String, Boolean> revokedFamilies;
+
+    public RefreshTokenService(RefreshTokenRepository repository,
+                               RefreshTokenWriter writer,
+                               @Value("${auth.refresh-token.ttl:14d}") Duration ttl) {
+        this.repository = repository;
+        this.writer = writer;
+        this.ttl = ttl;
+        this.consumed = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .maximumSize(100_000)
+                .build();
+        this.revokedFamilies = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * Выпускает refresh-токен нового семейства.
+     *
+     * @param email email пользователя
+     * @return refresh-токен в открытом виде; в базе хранится только его хэш
+     */
+    public String issue(String email) {
+        return issue(email, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Обменивает refresh-токен на новый того же семейства.
+     *
+     * @param refreshToken предъявленный refresh-токен
+     * @return email владельца и новый refresh-токен
+     * @throws InvalidRefreshTokenException если токен неизвестен, истек, отозван или уже использован
+     * @throws RefreshTokenWriterOverloadedException если новый токен некуда записать;
+     *                                               предъявленный токен остается действительным
+     */
+    public Rotation rotate(String refreshToken) {
+        RefreshToken stored = find(refreshToken);
+        String tokenHash = stored.getTokenHash();
+        if (stored.isUsed() || writer.isMarkedUsed(tokenHash)) {
+            throw reuse(stored);
+        }
+        // Сначала новый токен: если очередь записи переполнена, старый токен не сгорает
+        String next = issue(stored.getEmail(), stored.getFamilyId());
+        if (consumed.asMap().putIfAbsent(tokenHash, Boolean.TRUE) != null || !writer.markUsed(tokenHash)) {
+            throw reuse(stored);
+        }
+        return new Rotation(stored.getEmail(), next);
+    }
+
+    private InvalidRefreshTokenException reuse(RefreshToken stored) {
+        // Токен предъявлен повторно: скорее всего, он украден - отзываем всю цепочку
+        revokeFamily(stored.getFamilyId());
+        return new InvalidRefreshTokenException("Refresh token reuse detected");
+    }
+
+    /**
+     * Отзывает семейство, к которому принадлежит токен (например, при выходе).
+     *
+     * @param refreshToken refresh-токен
+     */
+    public void revoke(String refreshToken) {
+        try {
+            revokeFamily(find(refreshToken).getFamilyId());
+        } catch (InvalidRefreshTokenException ignored) {
+            // Недействительный токен отзывать не нужно
+        }
+    }
+
+    private RefreshToken find(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new InvalidRefreshTokenException("Refresh token is missing");
+        }
+        String tokenHash = hash(refreshToken);
+        RefreshToken stored = writer.pending(tokenHash);
+        if (stored == null) {
+            stored = repository.findById(tokenHash)
+                    .orElseThrow(() -> new InvalidRefreshTokenException("Unknown refresh token"));
+        }
+        if (stored.isRevoked() || writer.isFamilyRevoked(stored.getFamilyId())
+                || revokedFamilies.getIfPresent(stored.getFamilyId()) != null) {
+            throw new InvalidRefreshTokenException("Refresh token is revoked");
+        }
+        if (stored.getExpiresAt().isBefore(Instant.now())) {
+            throw new InvalidRefreshTokenException("Refresh token is expired");
+        }
+        return stored;
+    }
+
+    private void revokeFamily(String familyId) {
+        revokedFamilies.put(familyId, Boolean.TRUE);
+        writer.revokeFamily(familyId);
+    }
+
+    private String issue(String email, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String refreshToken = BASE64_URL.encodeToString(bytes);
+        writer.insert(RefreshToken.builder()
+                .tokenHash(hash(refreshToken))
+                .familyId(familyId)
+                .email(email)
+                .expiresAt(Instant.now().plus(ttl))
+                .build());
+        return refreshToken;
+    }
+
+    private static String hash(String refreshToken) {
+        try {
+            return BASE64_URL.encodeToString(MessageDigest.getInstance("SHA-256")
+                    .digest(refreshToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Результат ротации.
+     *
+     * @param email        email владельца токена
+     * @param refreshToken новый refresh-токен
+     */
+    public record Rotation(String email, String refreshToken) {
+    }
+}
@@ -0,0 +1,327 @@
+package com.alibou.security.token;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Пакетная запись refresh-токенов вне потока запроса.
+ * <p>
+ * Операции складываются в очередь и раз в {@code auth.refresh-token.flush-interval}
+ * записываются JDBC-пакетами, каждый пакет - одной транзакцией. Еще не записанные токены доступны
+ * через {@link #pending(String)}, чтобы обновление сразу после входа находило новый токен, а отметки
+ * об использовании токена и отзыве семейства - через {@link #isMarkedUsed(String)} и
+ * {@link #isFamilyRevoked(String)}. И то и другое хранится, пока запись не удалась:
+ * пакет, не записанный из-за недоступной базы, повторяется при следующей записи.
+ * <p>
+ * Поток запроса в базу не пишет. Новые токены принимаются, пока в очереди меньше
+ * {@code auth.refresh-token.queue-capacity} невыписанных токенов, затем выпуск отклоняется
+ * с {@link RefreshTokenWriterOverloadedException}. Отметки использования и отзыва принимаются всегда:
+ * их потеря снова открыла бы уже использованные токены.
+ * <p>
+ * Незаписанное состояние видно только этому узлу - см. ограничения в {@link RefreshTokenService}.
+ * <p>
+ * Раз в {@code auth.refresh-token.purge-interval} истекшие токены удаляются. Использованные и отозванные
+ * токены хранятся до истечения: по ним распознается повторное предъявление.
+ */
+@Slf4j
+@Component
+public class RefreshTokenWriter {
+
+    private static final String INSERT_SQL = "insert into refresh_tokens "
+            + "(token_hash, family_id, email, expires_at, used, revoked) values (?, ?, ?, ?, false, false)";
+    private static final String MARK_USED_SQL = "update refresh_tokens set used = true where token_hash = ?";
+    private static final String REVOKE_FAMILY_SQL = "update refresh_tokens set revoked = true where family_id = ?";
+    private static final String PURGE_SQL = "delete from refresh_tokens where expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int queueCapacity;
+    // Порядок очереди сохраняет правило "вставка токена раньше его обновлений"
+    private final Queue<Operation> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedInserts = new AtomicInteger();
+    private final Map<String, RefreshToken> pending = new ConcurrentHashMap<>();
+    private final Set<String> usedMarks = ConcurrentHashMap.newKeySet();
+    private final Set<String> revokedFamilyMarks = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService executor;
+
+    // Пакет, который не удалось записать; повторяется первым. Доступ только под flushLock
+    private List<Operation> retry = List.of();
+
+    public RefreshTokenWriter(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${auth.refresh-token.flush-interval:50ms}") Duration flushInterval,
+                              @Value("${auth.refresh-token.batch-size:500}") int batchSize,
+                              @Value("${auth.refresh-token.queue-capacity:10000}") int queueCapacity,
+                              @Value("${auth.refresh-token.purge-interval:1h}") Duration purgeInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        long purge = purgeInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::purgeQuietly, purge, purge, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ставит в очередь сохранение нового токена.
+     *
+     * @throws RefreshTokenWriterOverloadedException если очередь заполнена
+     */
+    public void insert(RefreshToken token) {
+        if (queuedInserts.incrementAndGet() > queueCapacity) {
+            queuedInserts.decrementAndGet();
+            throw new RefreshTokenWriterOverloadedException();
+        }
+        pending.put(token.getTokenHash(), token);
+        queue.add(new Insert(token));
+    }
+
+    /**
+     * Ставит в очередь отметку токена как использованного.
+     *
+     * @return false, если токен уже отмечен и отметка еще не записана
+     */
+    public boolean markUsed(String tokenHash) {
+        if (!usedMarks.add(tokenHash)) {
+            return false;
+        }
+        RefreshToken token = pending.get(tokenHash);
+        if (token != null) {
+            token.setUsed(true);
+        }
+        queue.add(new MarkUsed(tokenHash));
+        return true;
+    }
+
+    /**
+     * Ставит в очередь отзыв всего семейства токенов.
+     */
+    public void revokeFamily(String familyId) {
+        pending.values().stream()
+                .filter(token -> token.getFamilyId().equals(familyId))
+                .forEach(token -> token.setRevoked(true));
+        if (revokedFamilyMarks.add(familyId)) {
+            queue.add(new RevokeFamily(familyId));
+        }
+    }
+
+    /**
+     * @return еще не записанный в базу токен или null
+     */
+    public RefreshToken pending(String tokenHash) {
+        return pending.get(tokenHash);
+    }
+
+    /**
+     * @return true, если токен отмечен использованным, но отметка еще не записана в базу
+     */
+    public boolean isMarkedUsed(String tokenHash) {
+        return usedMarks.contains(tokenHash);
+    }
+
+    /**
+     * @return true, если семейство отозвано, но отзыв еще не записан в базу
+     */
+    public boolean isFamilyRevoked(String familyId) {
+        return revokedFamilyMarks.contains(familyId);
+    }
+
+    /**
+     * Записывает накопленные операции. Вставки выполняются раньше обновлений,
+     * поэтому токен, выпущенный и использованный в одном интервале, обрабатывается корректно.
+     * Если база недоступна, пакет остается на повтор, и запись прекращается до следующего вызова.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (!retry.isEmpty()) {
+                retry = write(retry);
+                if (!retry.isEmpty()) {
+                    return;
+                }
+            }
+            List<Operation> operations = new ArrayList<>(batchSize);
+            Operation operation;
+            while ((operation = queue.poll()) != null) {
+                if (operation instanceof Insert) {
+                    queuedInserts.decrementAndGet();
+                }
+                operations.add(operation);
+                if (operations.size() == batchSize || queue.isEmpty()) {
+                    retry = write(operations);
+                    if (!retry.isEmpty()) {
+                        return;
+                    }
+                    operations = new ArrayList<>(batchSize);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает пакет одной транзакцией.
+     *
+     * @return операции, которые нужно повторить; пусто, если пакет записан
+     */
+    private List<Operation> write(List<Operation> operations) {
+        try {
+            writeInTransaction(operations);
+            written(operations);
+            return List.of();
+        } catch (DataAccessException e) {
+            if (isUnavailable(e)) {
+                log.warn("Failed to write {} refresh token operations, will retry", operations.size(), e);
+                return operations;
+            }
+        }
+        // Пакет отклонен из-за данных - записываем по одной операции, чтобы не потерять остальные
+        List<Operation> failed = new ArrayList<>();
+        for (Operation operation : operations) {
+            try {
+                writeInTransaction(List.of(operation));
+                written(List.of(operation));
+            } catch (DataAccessException e) {
+                if (isUnavailable(e)) {
+                    failed.add(operation);
+                } else {
+                    log.error("Dropping refresh token operation {} rejected by the database", operation, e);
+                    written(List.of(operation));
+                }
+            }
+        }
+        return failed;
+    }
+
+    private void writeInTransaction(List<Operation> operations) {
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> used = new ArrayList<>();
+        List<Object[]> revokedFamilies = new ArrayList<>();
+        for (Operation operation : operations) {
+            if (operation instanceof Insert insert) {
+                RefreshToken token = insert.token();
+                inserts.add(new Object[]{token.getTokenHash(), token.getFamilyId(), token.getEmail(),
+                        Timestamp.from(token.getExpiresAt())});
+            } else if (operation instanceof MarkUsed markUsed) {
+                used.add(new Object[]{markUsed.tokenHash()});
+            } else if (operation instanceof RevokeFamily revokeFamily) {
+                revokedFamilies.add(new Object[]{revokeFamily.familyId()});
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            }
+            if (!used.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_USED_SQL, used);
+            }
+            if (!revokedFamilies.isEmpty()) {
+                jdbcTemplate.batchUpdate(REVOKE_FAMILY_SQL, revokedFamilies);
+            }
+        });
+    }
+
+    /**
+     * Снимает отметки записанных операций: дальше их состояние читается из базы.
+     */
+    private void written(List<Operation> operations) {
+        for (Operation operation : operations) {
+            if (operation instanceof Insert insert) {
+                pending.remove(insert.token().getTokenHash());
+            } else if (operation instanceof MarkUsed markUsed) {
+                usedMarks.remove(markUsed.tokenHash());
+            } else if (operation instanceof RevokeFamily revokeFamily) {
+                revokedFamilyMarks.remove(revokeFamily.familyId());
+            }
+        }
+    }
+
+    /**
+     * База недоступна или ошибка временная - повтор того же пакета может пройти.
+     */
+    private static boolean isUnavailable(DataAccessException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof NonTransientDataAccessResourceException;
+    }
+
+    /**
+     * Удаляет истекшие токены.
+     *
+     * @return число удаленных токенов
+     */
+    int purgeExpired() {
+        return jdbcTemplate.update(PURGE_SQL, Timestamp.from(Instant.now()));
+    }
+
+    private void purgeQuietly() {
+        try {
+            int purged = purgeExpired();
+            if (purged > 0) {
+                log.info("Purged {} expired refresh tokens", purged);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge expired refresh tokens", e);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to write refresh tokens", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        flushQuietly();
+    }
+
+    private sealed interface Operation permits Insert, MarkUsed, RevokeFamily {
+    }
+
+    private record Insert(RefreshToken token) implements Operation {
+    }
+
+    private record MarkUsed(String tokenHash) implements Operation {
+    }
+
+    private record RevokeFamily(String familyId) implements Operation {
+    }
+}
@@ -0,0 +1,12 @@
+package com.alibou.security.token;
+
+/**
+ * Очередь записи refresh-токенов заполнена - база не успевает или недоступна.
+ * Новый токен не выпускается, а предъявленный остается действительным.
+ */
+public class RefreshTokenWriterOverloadedException extends RuntimeException {
+
+    public RefreshTokenWriterOverloadedException() {
+        super("Refresh token write queue is full");
+    }
+}
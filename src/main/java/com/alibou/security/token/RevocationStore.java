@@ -0,0 +1,35 @@
+package com.alibou.security.token;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Точка расширения денайлиста: сохранение отозванных токенов между перезапусками
+ * и рассылка отзывов другим узлам. Чтобы подключить свою реализацию,
+ * объявите бин этого типа с {@code @Primary}.
+ */
+public interface RevocationStore {
+
+    /**
+     * Загружает отозванные токены, срок действия которых еще не истек.
+     *
+     * @param now текущее время
+     * @return jti и время истечения токена
+     */
+    Map<String, Instant> loadActive(Instant now);
+
+    /**
+     * Вызывается после отзыва токена на этом узле.
+     *
+     * @param tokenId   jti токена
+     * @param expiresAt время истечения срока действия токена
+     */
+    void onRevoked(String tokenId, Instant expiresAt);
+
+    /**
+     * Удаляет записи о токенах, срок действия которых истек.
+     *
+     * @param now текущее время
+     */
+    void purgeExpired(Instant now);
+}
@@ -0,0 +1,31 @@
+package com.alibou.security.token;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Отозванный JWT-токен. Хранится, пока не истечет срок действия самого токена.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+
+    @Id
+    @Column(name = "token_id", length = 64)
+    private String tokenId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,19 @@
+package com.alibou.security.token;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
@@ -0,0 +1,131 @@
+package com.alibou.security.token;
+
+import com.alibou.security.invalidation.InvalidationHandler;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Денайлист отозванных JWT-токенов по jti.
+ * <p>
+ * Фильтр Блума отвечает на частый вопрос "токен не отозван" без обращения к точному набору.
+ * Точный набор хранит jti только до истечения срока действия самого токена, поэтому память
+ * ограничена количеством живых отозванных токенов. Фильтр Блума периодически перестраивается
+ * по оставшимся записям.
+ */
+@Slf4j
+@Component
+public class TokenDenylist implements InvalidationHandler {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevocationStore store;
+    private final long expectedRevocations;
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+
+    public TokenDenylist(RevocationStore store,
+                         @Value("${auth.revocation.expected-revocations:100000}") long expectedRevocations) {
+        this.store = store;
+        this.expectedRevocations = expectedRevocations;
+        this.bloomFilter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Загружает отозванные токены, сохраненные до перезапуска.
+     */
+    @PostConstruct
+    void load() {
+        store.loadActive(Instant.now()).forEach(this::add);
+    }
+
+    /**
+     * Отзывает токен до истечения его срока действия.
+     *
+     * @param tokenId   jti токена
+     * @param expiresAt время истечения срока действия токена
+     */
+    public void revoke(String tokenId, Instant expiresAt) {
+        if (tokenId == null || expiresAt == null || expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+        add(tokenId, expiresAt);
+        try {
+            store.onRevoked(tokenId, expiresAt);
+        } catch (RuntimeException e) {
+            // Отзыв уже действует на этом узле, поэтому ошибка хранилища не прерывает выход пользователя
+            log.warn("Failed to persist revocation of token {}", tokenId, e);
+        }
+    }
+
+    /**
+     * Применяет отзыв, полученный от другого узла, без повторной записи в хранилище.
+     *
+     * @param tokenId   jti токена
+     * @param expiresAt время истечения срока действия токена
+     */
+    public void add(String tokenId, Instant expiresAt) {
+        revoked.put(tokenId, expiresAt);
+        bloomFilter.add(tokenId);
+    }
+
+    @Override
+    public void onTokenRevoked(String tokenId, Instant expiresAt) {
+        add(tokenId, expiresAt);
+    }
+
+    /**
+     * Отзывы, пропущенные шиной, перечитываются из хранилища.
+     */
+    @Override
+    public void onFullFlush() {
+        load();
+    }
+
+    /**
+     * Проверяет, отозван ли токен.
+     *
+     * @param tokenId jti токена
+     * @return true, если токен отозван
+     */
+    public boolean isRevoked(String tokenId) {
+        return tokenId != null
+                && bloomFilter.mightContain(tokenId)
+                && revoked.containsKey(tokenId);
+    }
+
+    /**
+     * @return количество отозванных токенов, срок действия которых еще не истек
+     */
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Удаляет истекшие записи и перестраивает фильтр Блума по оставшимся.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.purge-interval:PT5M}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2L),
+                FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::add);
+        bloomFilter = rebuilt;
+        // Повторный проход покрывает отзывы, добавленные в старый фильтр во время перестроения
+        revoked.keySet().forEach(rebuilt::add);
+
+        try {
+            store.purgeExpired(now);
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge expired revocations", e);
+        }
+    }
+}
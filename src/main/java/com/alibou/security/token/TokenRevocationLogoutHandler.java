@@ -0,0 +1,44 @@
+package com.alibou.security.token;
+
+import com.alibou.security.auth.AuthCookies;
+import com.alibou.security.config.JwtService;
+import com.alibou.security.config.TokenVerification;
+import com.alibou.security.invalidation.InvalidationBus;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * При выходе отзывает JWT-токен из cookie, чтобы он перестал приниматься до истечения срока действия,
+ * и семейство refresh-токена. Отзыв рассылается другим узлам через {@link InvalidationBus}.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+@RequiredArgsConstructor
+public class TokenRevocationLogoutHandler implements LogoutHandler {
+
+    private final JwtService jwtService;
+    private final TokenDenylist denylist;
+    private final RefreshTokenService refreshTokenService;
+    private final InvalidationBus invalidationBus;
+
+    @Override
+    public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
+        String accessToken = AuthCookies.read(request, AuthCookies.ACCESS_TOKEN);
+        if (accessToken != null) {
+            TokenVerification verification = jwtService.tryVerify(accessToken);
+            if (verification.isValid()) {
+                denylist.revoke(verification.token().id(), verification.token().expiresAt());
+                invalidationBus.tokenRevoked(verification.token().id(), verification.token().expiresAt());
+            }
+        }
+        String refreshToken = AuthCookies.read(request, AuthCookies.REFRESH_TOKEN);
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+    }
+}
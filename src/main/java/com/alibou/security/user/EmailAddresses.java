@@ -0,0 +1,24 @@
+package com.alibou.security.user;
+
+import java.util.Locale;
+
+/**
+ * Единый вид email для хранения и поиска: уникальный индекс по {@code security_users.email}
+ * сравнивает строки точно, поэтому email приводится к нему до записи и до любого поиска.
+ */
+public final class EmailAddresses {
+
+    private EmailAddresses() {
+    }
+
+    /**
+     * Убирает пробелы по краям и приводит email к нижнему регистру.
+     * Уже приведенная строка возвращается без копирования.
+     *
+     * @param email email в любом виде или null
+     * @return приведенный email или null
+     */
+    public static String normalize(String email) {
+        return email == null ? null : email.strip().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,66 @@
+package com.alibou.security.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Заполняет встроенную базу профиля loadtest синтетическими пользователями
+ * user{N}@loadtest.local с одинаковым паролем.
+ * <p>
+ * Пароль хэшируется один раз: хэширование каждого пользователя заняло бы минуты,
+ * а проверка пароля при входе от этого не меняется.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+public class LoadTestUserSeeder implements CommandLineRunner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final UserBatchWriter writer;
+    private final PasswordEncoder passwordEncoder;
+    private final int users;
+    private final String password;
+
+    public LoadTestUserSeeder(UserBatchWriter writer,
+                              PasswordEncoder passwordEncoder,
+                              @Value("${loadtest.seed.users:10000}") int users,
+                              @Value("${loadtest.seed.password:password}") String password) {
+        this.writer = writer;
+        this.passwordEncoder = passwordEncoder;
+        this.users = users;
+        this.password = password;
+    }
+
+    @Override
+    public void run(String... args) {
+        long startedAt = System.nanoTime();
+        String encodedPassword = passwordEncoder.encode(password);
+
+        List<SecurityUser> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < users; i++) {
+            batch.add(SecurityUser.builder()
+                    .firstname("User")
+                    .lastname(String.valueOf(i))
+                    .email("user" + i + "@loadtest.local")
+                    .password(encodedPassword)
+                    .roles(Set.of(Role.USER))
+                    .build());
+            if (batch.size() == BATCH_SIZE) {
+                writer.insert(batch);
+                batch.clear();
+            }
+        }
+        writer.insert(batch);
+
+        log.info("Seeded {} load test users in {} ms", users, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+}
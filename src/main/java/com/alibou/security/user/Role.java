@@ -1,7 +1,86 @@
 package com.alibou.security.user;
 
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public enum Role {
 
     USER,
-    ADMIN
+    ADMIN;
+
+    // Неизменяемые списки полномочий для всех сочетаний ролей, индекс - битовая маска ролей.
+    // Проверки доступа и кэшированные пользователи используют общие экземпляры и ничего не выделяют
+    private static final List<List<GrantedAuthority>> AUTHORITIES;
+
+    static {
+        Role[] roles = values();
+        List<GrantedAuthority> single = new ArrayList<>(roles.length);
+        for (Role role : roles) {
+            single.add(new SimpleGrantedAuthority(role.name()));
+        }
+        List<List<GrantedAuthority>> authorities = new ArrayList<>(1 << roles.length);
+        for (int mask = 0; mask < 1 << roles.length; mask++) {
+            List<GrantedAuthority> combination = new ArrayList<>(Integer.bitCount(mask));
+            for (Role role : roles) {
+                if ((mask & role.bit()) != 0) {
+                    combination.add(single.get(role.ordinal()));
+                }
+            }
+            authorities.add(List.copyOf(combination));
+        }
+        AUTHORITIES = List.copyOf(authorities);
+    }
+
+    /**
+     * @return бит роли в маске
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Битовая маска набора ролей.
+     *
+     * @param roles роли; null - пустой набор
+     * @return маска
+     */
+    public static int mask(Collection<Role> roles) {
+        int mask = 0;
+        if (roles != null) {
+            for (Role role : roles) {
+                mask |= role.bit();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Битовая маска ролей по их именам (например, из claims токена). Неизвестные имена пропускаются.
+     *
+     * @param names имена ролей
+     * @return маска
+     */
+    public static int maskOfNames(Collection<String> names) {
+        int mask = 0;
+        for (Role role : values()) {
+            if (names.contains(role.name())) {
+                mask |= role.bit();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Общий неизменяемый список полномочий для маски ролей.
+     *
+     * @param mask битовая маска ролей
+     * @return полномочия
+     */
+    public static List<GrantedAuthority> authorities(int mask) {
+        return AUTHORITIES.get(mask);
+    }
 }
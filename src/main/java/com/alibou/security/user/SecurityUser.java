@@ -5,24 +5,34 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "security_users")
+// Email хранится в едином виде (EmailAddresses) и уникален: поиск при входе и на каждом запросе идет по индексу
+@Table(name = "security_users",
+        indexes = @Index(name = "uk_security_users_email", columnList = "email", unique = true))
 public class SecurityUser implements UserDetails {
 
+    // Идентификаторы выдаются блоками по 50 из последовательности (pooled-lo: значение - начало блока),
+    // поэтому вставки можно объединять в JDBC-пакеты; тот же порядок использует UserBatchWriter
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = UserBatchWriter.ID_SEQUENCE)
+    @GenericGenerator(name = UserBatchWriter.ID_SEQUENCE, type = SequenceStyleGenerator.class, parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = UserBatchWriter.ID_SEQUENCE),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + UserBatchWriter.ID_BLOCK_SIZE),
+            @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+    })
     private Integer id;
     private String firstname;
     private String lastname;
@@ -30,15 +40,18 @@ public class SecurityUser implements UserDetails {
     private String password;
 
     @ElementCollection(targetClass = Role.class, fetch = FetchType.EAGER)
-    @CollectionTable(name = "user_role", joinColumns = @JoinColumn(name = "user_id"))
+    @CollectionTable(name = "user_role", joinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "idx_user_role_user", columnList = "user_id"))
     @Enumerated(EnumType.STRING)
     private Set<Role> roles;
 
+    // Версия безопасности: повышается при изменении ролей, чтобы старые токены перестали действовать
+    private int securityVersion;
+
+    // Общие списки полномочий; в SecurityContext и кэши попадает компактный UserPrincipal
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return roles.stream()
-                .map(role -> new SimpleGrantedAuthority(role.name()))
-                .collect(Collectors.toList());
+        return Role.authorities(Role.mask(roles));
     }
 
     @Override
@@ -0,0 +1,67 @@
+package com.alibou.security.user;
+
+import com.alibou.security.invalidation.InvalidationHandler;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Реестр актуальных версий безопасности пользователей, измененных на этом узле.
+ * Используется в режиме stateless: токен с версией ниже известной считается отозванным,
+ * и пользователю приходится войти заново. Версии, измененные на других узлах, приходят через
+ * {@link com.alibou.security.invalidation.InvalidationBus}. Запись живет не дольше максимального срока
+ * действия токена - после этого старых токенов уже не существует.
+ */
+@Component
+public class SecurityVersionRegistry implements InvalidationHandler {
+
+    private final Cache<String, Integer> versions;
+
+    public SecurityVersionRegistry(@Value("${auth.version-registry.ttl:${auth.access-token-ttl:15m}}") Duration ttl,
+                                   @Value("${auth.version-registry.max-size:100000}") long maxSize) {
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Запоминает новую версию пользователя.
+     *
+     * @param email   email пользователя
+     * @param version актуальная версия безопасности
+     */
+    public void record(String email, int version) {
+        versions.asMap().merge(email, version, Math::max);
+    }
+
+    /**
+     * Проверяет, что версия из токена не устарела.
+     *
+     * @param email        email пользователя
+     * @param tokenVersion версия из токена
+     * @return true, если более новая версия на этом узле неизвестна
+     */
+    public boolean isCurrent(String email, int tokenVersion) {
+        Integer known = versions.getIfPresent(email);
+        return known == null || tokenVersion >= known;
+    }
+
+    @Override
+    public void onUserChanged(String email, int securityVersion) {
+        if (securityVersion > 0) {
+            record(email, securityVersion);
+        }
+    }
+
+    /**
+     * Пропущенные повышения версий восстановить нельзя: в режиме stateless такие токены
+     * принимаются до истечения своего срока действия ({@code auth.access-token-ttl}).
+     */
+    @Override
+    public void onFullFlush() {
+    }
+}
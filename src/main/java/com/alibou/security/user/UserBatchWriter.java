@@ -0,0 +1,89 @@
+package com.alibou.security.user;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетная вставка пользователей через JDBC в обход JPA.
+ * <p>
+ * Идентификаторы берутся из той же последовательности, что и у {@link SecurityUser}, тем же
+ * способом pooled-lo: одно значение последовательности - начало блока из {@link #ID_BLOCK_SIZE} идентификаторов.
+ * Поэтому пакетные вставки и обычный {@code repository.save} не пересекаются.
+ */
+@Component
+public class UserBatchWriter {
+
+    public static final String ID_SEQUENCE = "security_users_seq";
+    public static final int ID_BLOCK_SIZE = 50;
+
+    private static final String INSERT_USER_SQL = "insert into security_users "
+            + "(id, firstname, lastname, email, password, security_version) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ROLE_SQL = "insert into user_role (user_id, roles) values (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String nextBlockSql;
+
+    public UserBatchWriter(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.nextBlockSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString(ID_SEQUENCE);
+    }
+
+    /**
+     * Назначает пользователям идентификаторы и вставляет их вместе с ролями
+     * двумя JDBC-пакетами в одной транзакции.
+     *
+     * @param users пользователи с уже захэшированными паролями
+     */
+    public void insert(List<SecurityUser> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        assignIds(users);
+        insertAssigned(users);
+    }
+
+    /**
+     * Вставляет пользователей с уже назначенными идентификаторами, например повторно после
+     * неудачного пакета {@link #insert(List)}: новые блоки последовательности не берутся.
+     *
+     * @param users пользователи с идентификаторами и захэшированными паролями
+     */
+    public void insertAssigned(List<SecurityUser> users) {
+        List<Object[]> userRows = new ArrayList<>(users.size());
+        List<Object[]> roleRows = new ArrayList<>(users.size());
+        for (SecurityUser user : users) {
+            userRows.add(new Object[]{user.getId(), user.getFirstname(), user.getLastname(), user.getEmail(),
+                    user.getPassword(), user.getSecurityVersion()});
+            for (Role role : user.getRoles()) {
+                roleRows.add(new Object[]{user.getId(), role.name()});
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_USER_SQL, userRows);
+            jdbcTemplate.batchUpdate(INSERT_ROLE_SQL, roleRows);
+        });
+    }
+
+    private void assignIds(List<SecurityUser> users) {
+        int next = 0;
+        int blockEnd = 0;
+        for (SecurityUser user : users) {
+            if (next == blockEnd) {
+                next = jdbcTemplate.queryForObject(nextBlockSql, Integer.class);
+                blockEnd = next + ID_BLOCK_SIZE;
+            }
+            user.setId(next++);
+        }
+    }
+}
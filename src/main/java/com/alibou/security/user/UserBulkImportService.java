@@ -0,0 +1,204 @@
+package com.alibou.security.user;
+
+import com.alibou.security.auth.RegisterRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Массовый импорт пользователей.
+ * <p>
+ * Строки обрабатываются порциями: пароли порции хэшируются параллельно в отдельном пуле
+ * (пул входа и регистрации при этом не занимается), затем пользователи и роли записываются
+ * JDBC-пакетами. Ошибка строки - неверные данные или занятый email - попадает в отчет
+ * и не прерывает импорт остальных строк.
+ * <p>
+ * Пароли хэшируются BCrypt со стоимостью {@code auth.bulk-import.bcrypt-strength}. Если она ниже
+ * откалиброванной, хэш будет перехэширован при первом входе пользователя.
+ */
+@Slf4j
+@Service
+public class UserBulkImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final UserRepository repository;
+    private final UserBatchWriter writer;
+    private final PasswordEncoder passwordEncoder;
+    private final ExecutorService hashingPool;
+    private final int chunkSize;
+
+    public UserBulkImportService(UserRepository repository,
+                                 UserBatchWriter writer,
+                                 @Value("${auth.bulk-import.threads:0}") int threads,
+                                 @Value("${auth.bulk-import.chunk-size:1000}") int chunkSize,
+                                 @Value("${auth.bulk-import.bcrypt-strength:10}") int bcryptStrength) {
+        this.repository = repository;
+        this.writer = writer;
+        this.chunkSize = chunkSize;
+        // Тот же формат {bcrypt}..., что и у основного кодировщика паролей
+        this.passwordEncoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(bcryptStrength)));
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hashingPool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-import-hash-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Импортирует пользователей с ролью USER.
+     *
+     * @param rows строки файла импорта
+     * @return количество созданных пользователей и ошибки по строкам
+     */
+    public UserImportResult importUsers(Iterator<UserImportReader.Row> rows) {
+        Progress progress = new Progress();
+        List<UserImportReader.Row> chunk = new ArrayList<>(chunkSize);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, progress);
+                chunk.clear();
+            }
+        }
+        importChunk(chunk, progress);
+
+        progress.errors.sort(Comparator.comparingLong(UserImportResult.RowError::line));
+        log.info("Bulk import finished: {} imported, {} failed", progress.imported, progress.failed);
+        return new UserImportResult(progress.imported, progress.failed, progress.errors);
+    }
+
+    private void importChunk(List<UserImportReader.Row> chunk, Progress progress) {
+        List<UserImportReader.Row> accepted = new ArrayList<>(chunk.size());
+        Set<String> emails = new HashSet<>();
+        for (UserImportReader.Row row : chunk) {
+            String error = row.error() != null ? row.error() : validate(row.request());
+            if (error == null) {
+                // Повторы и занятые email ищутся в том виде, в котором email хранится
+                row.request().setEmail(EmailAddresses.normalize(row.request().getEmail()));
+            }
+            if (error == null && !emails.add(row.request().getEmail())) {
+                error = "Duplicate email in import";
+            }
+            if (error != null) {
+                progress.fail(row, error);
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // Порции уже записаны, поэтому этот запрос находит и повторы из предыдущих порций
+        Set<String> existing = repository.findExistingEmails(emails);
+        List<UserImportReader.Row> toInsert = new ArrayList<>(accepted.size());
+        for (UserImportReader.Row row : accepted) {
+            if (existing.contains(row.request().getEmail())) {
+                progress.fail(row, "Email is already registered");
+            } else {
+                toInsert.add(row);
+            }
+        }
+
+        List<SecurityUser> users = hash(toInsert);
+        try {
+            writer.insert(users);
+            progress.imported += users.size();
+        } catch (DataAccessException e) {
+            // Пакет отклонен целиком - повторяем по одной строке, чтобы найти виноватую.
+            // Идентификаторы уже назначены пакетом, новые блоки последовательности не нужны
+            log.warn("Batch insert of {} users failed, retrying row by row", users.size(), e);
+            for (int i = 0; i < users.size(); i++) {
+                try {
+                    writer.insertAssigned(List.of(users.get(i)));
+                    progress.imported++;
+                } catch (DataAccessException rowFailure) {
+                    progress.fail(toInsert.get(i), rowFailure.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private static String validate(RegisterRequest request) {
+        if (request.getEmail() == null || request.getEmail().isBlank() || !request.getEmail().contains("@")) {
+            return "Email is missing or invalid";
+        }
+        if (request.getPassword() == null || request.getPassword().isEmpty()) {
+            return "Password is missing";
+        }
+        return null;
+    }
+
+    private List<SecurityUser> hash(List<UserImportReader.Row> rows) {
+        List<Callable<String>> tasks = new ArrayList<>(rows.size());
+        for (UserImportReader.Row row : rows) {
+            tasks.add(() -> passwordEncoder.encode(row.request().getPassword()));
+        }
+        try {
+            List<Future<String>> hashes = hashingPool.invokeAll(tasks);
+            List<SecurityUser> users = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                RegisterRequest request = rows.get(i).request();
+                users.add(SecurityUser.builder()
+                        .firstname(request.getFirstname())
+                        .lastname(request.getLastname())
+                        .email(request.getEmail())
+                        .password(hashes.get(i).get())
+                        .roles(Set.of(Role.USER))
+                        .build());
+            }
+            return users;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing imported passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to hash imported password", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashingPool.shutdown();
+    }
+
+    /**
+     * Счетчики одного импорта.
+     */
+    private static final class Progress {
+
+        private long imported;
+        private long failed;
+        private final List<UserImportResult.RowError> errors = new ArrayList<>();
+
+        void fail(UserImportReader.Row row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                String email = row.request() != null ? row.request().getEmail() : null;
+                errors.add(new UserImportResult.RowError(row.line(), email, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.alibou.security.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Массовый импорт пользователей администратором. Тело запроса читается потоком,
+ * поэтому размер файла не ограничен памятью.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/api/v1/admin/users")
+@RequiredArgsConstructor
+public class UserImportController {
+
+    private final UserBulkImportService importService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<UserImportResult> importCsv(InputStream body) throws IOException {
+        try (BufferedReader reader = reader(body)) {
+            return ResponseEntity.ok(importService.importUsers(UserImportReader.csv(reader)));
+        }
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<UserImportResult> importNdjson(InputStream body) throws IOException {
+        try (BufferedReader reader = reader(body)) {
+            return ResponseEntity.ok(importService.importUsers(UserImportReader.ndjson(reader, objectMapper)));
+        }
+    }
+
+    private static BufferedReader reader(InputStream body) {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,110 @@
+package com.alibou.security.user;
+
+import com.alibou.security.auth.RegisterRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Построчное чтение пользователей для импорта из CSV или NDJSON без загрузки всего файла в память.
+ * <p>
+ * CSV: {@code firstname,lastname,email,password}, заголовок необязателен. Пароль - последнее поле,
+ * поэтому может содержать запятые. NDJSON: по одному объекту {@link RegisterRequest} в строке.
+ * Пустые строки пропускаются; строка, которую не удалось разобрать, возвращается с ошибкой.
+ */
+public final class UserImportReader implements Iterator<UserImportReader.Row> {
+
+    private static final String CSV_HEADER = "firstname,lastname,email,password";
+
+    /**
+     * Строка файла импорта.
+     *
+     * @param line    номер строки в файле, начиная с 1
+     * @param request данные пользователя или null, если строку не удалось разобрать
+     * @param error   ошибка разбора или null
+     */
+    public record Row(long line, RegisterRequest request, String error) {
+    }
+
+    private interface LineParser {
+        RegisterRequest parse(String line) throws IOException;
+    }
+
+    private final BufferedReader reader;
+    private final LineParser parser;
+    private final String header;
+    private long lineNumber;
+    private Row next;
+
+    private UserImportReader(BufferedReader reader, LineParser parser, String header) {
+        this.reader = reader;
+        this.parser = parser;
+        this.header = header;
+    }
+
+    public static UserImportReader csv(BufferedReader reader) {
+        return new UserImportReader(reader, UserImportReader::parseCsv, CSV_HEADER);
+    }
+
+    public static UserImportReader ndjson(BufferedReader reader, ObjectMapper objectMapper) {
+        return new UserImportReader(reader, line -> objectMapper.readValue(line, RegisterRequest.class), null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readRow();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    private Row readRow() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && line.trim().equalsIgnoreCase(header))) {
+                    continue;
+                }
+                try {
+                    return new Row(lineNumber, parser.parse(line), null);
+                } catch (JsonProcessingException e) {
+                    return new Row(lineNumber, null, "Malformed JSON: " + e.getOriginalMessage());
+                } catch (IllegalArgumentException e) {
+                    return new Row(lineNumber, null, e.getMessage());
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static RegisterRequest parseCsv(String line) {
+        String[] fields = line.split(",", 4);
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Expected 4 fields: " + CSV_HEADER);
+        }
+        return RegisterRequest.builder()
+                .firstname(fields[0].trim())
+                .lastname(fields[1].trim())
+                .email(fields[2].trim())
+                .password(fields[3])
+                .build();
+    }
+}
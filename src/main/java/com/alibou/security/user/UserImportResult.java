@@ -0,0 +1,23 @@
+package com.alibou.security.user;
+
+import java.util.List;
+
+/**
+ * Итог массового импорта пользователей.
+ *
+ * @param imported количество созданных пользователей
+ * @param failed   количество отклоненных строк
+ * @param errors   ошибки по строкам; при большом количестве возвращаются только первые
+ */
+public record UserImportResult(long imported, long failed, List<RowError> errors) {
+
+    /**
+     * Ошибка одной строки импорта.
+     *
+     * @param line    номер строки в файле
+     * @param email   email из строки, если его удалось прочитать
+     * @param message причина отказа
+     */
+    public record RowError(long line, String email, String message) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.alibou.security.user;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * Компактный неизменяемый пользователь для {@code SecurityContext} и кэшей вместо JPA-сущности
+ * {@link SecurityUser}: без имен, без коллекции Hibernate, роли - битовая маска.
+ * Полномочия берутся из общих списков {@link Role#authorities(int)} и не создаются на каждый вызов.
+ * <p>
+ * Хэш пароля есть только у пользователя, загруженного для проверки пароля при входе
+ * ({@link #withPassword(SecurityUser)}); в кэши и {@code SecurityContext} попадает пользователь без хэша.
+ *
+ * @param id              идентификатор пользователя; null для токенов, выпущенных без него
+ * @param email           email пользователя
+ * @param password        хэш пароля - только при входе, иначе null
+ * @param roleMask        битовая маска ролей
+ * @param securityVersion версия безопасности пользователя
+ */
+public record UserPrincipal(Integer id,
+                            String email,
+                            String password,
+                            int roleMask,
+                            int securityVersion) implements UserDetails {
+
+    /**
+     * Создает пользователя по сущности без хэша пароля - для кэшей и {@code SecurityContext}.
+     *
+     * @param securityUser сущность пользователя
+     * @return компактный пользователь
+     */
+    public static UserPrincipal of(SecurityUser securityUser) {
+        return withPassword(securityUser).withoutPassword();
+    }
+
+    /**
+     * Создает пользователя по сущности вместе с хэшем пароля - только для проверки пароля при входе.
+     *
+     * @param securityUser сущность пользователя
+     * @return компактный пользователь с хэшем пароля
+     */
+    public static UserPrincipal withPassword(SecurityUser securityUser) {
+        return new UserPrincipal(
+                securityUser.getId(),
+                securityUser.getEmail(),
+                securityUser.getPassword(),
+                Role.mask(securityUser.getRoles()),
+                securityUser.getSecurityVersion());
+    }
+
+    /**
+     * @return тот же пользователь без хэша пароля
+     */
+    public UserPrincipal withoutPassword() {
+        return password == null ? this : new UserPrincipal(id, email, null, roleMask, securityVersion);
+    }
+
+    /**
+     * @param role роль
+     * @return true, если у пользователя есть роль
+     */
+    public boolean hasRole(Role role) {
+        return (roleMask & role.bit()) != 0;
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return Role.authorities(roleMask);
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    // Хэш пароля не попадает в журналы
+    @Override
+    public String toString() {
+        return "UserPrincipal[id=" + id + ", email=" + email + ", roleMask=" + roleMask
+                + ", securityVersion=" + securityVersion + "]";
+    }
+}
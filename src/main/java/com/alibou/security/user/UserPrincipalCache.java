@@ -0,0 +1,148 @@
+package com.alibou.security.user;
+
+import com.alibou.security.invalidation.InvalidationHandler;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш загруженных пользователей перед {@link UserRepository} в компактном виде {@link UserPrincipal}.
+ * Ограничен по размеру и времени жизни записи; при изменении пользователя запись
+ * нужно явно сбросить через {@link #invalidate(String)}.
+ * <p>
+ * Ключ кэша и условие поиска - email в едином виде {@link EmailAddresses#normalize(String)}.
+ * <p>
+ * Запрос к базе при промахе выполняется вне блокировок кэша: загрузка внутри
+ * {@code Cache.get(key, loader)} шла бы под synchronized в ConcurrentHashMap.compute
+ * и на время запроса закрепляла бы виртуальный поток за потоком-носителем.
+ * Параллельные промахи по одному email ждут одну загрузку.
+ */
+@Component
+public class UserPrincipalCache implements InvalidationHandler {
+
+    private final UserRepository repository;
+    private final AsyncCache<String, UserPrincipal> principals;
+
+    public UserPrincipalCache(UserRepository repository,
+                              @Value("${auth.principal-cache.ttl:5m}") Duration ttl,
+                              @Value("${auth.principal-cache.max-size:10000}") long maxSize) {
+        this.repository = repository;
+        this.principals = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Ищет пользователя по email, при промахе загружает его из репозитория.
+     * Отсутствующие пользователи не кэшируются.
+     *
+     * @param email email пользователя
+     * @return найденный пользователь
+     */
+    public Optional<UserPrincipal> findByEmail(String email) {
+        email = EmailAddresses.normalize(email);
+        CompletableFuture<UserPrincipal> cached = principals.getIfPresent(email);
+        if (cached == null) {
+            CompletableFuture<UserPrincipal> loading = new CompletableFuture<>();
+            cached = principals.asMap().putIfAbsent(email, loading);
+            if (cached == null) {
+                return Optional.ofNullable(load(email, loading));
+            }
+        }
+        try {
+            return Optional.ofNullable(cached.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Ищет пользователей по набору email. Все промахи загружаются из репозитория одним запросом,
+     * параллельные загрузки тех же email не повторяются.
+     *
+     * @param emails email пользователей
+     * @return найденные пользователи по приведенному email; отсутствующих в результате нет
+     */
+    public Map<String, UserPrincipal> findAllByEmail(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Map.of();
+        }
+        Set<String> normalized = new HashSet<>(emails.size());
+        emails.forEach(email -> normalized.add(EmailAddresses.normalize(email)));
+        try {
+            // Caffeine вызывает загрузку в текущем потоке и вне блокировок кэша
+            return principals.getAll(normalized, (missing, executor) -> CompletableFuture.completedFuture(
+                    repository.findAllByEmailIn(List.copyOf(missing)).stream()
+                            .collect(Collectors.toMap(SecurityUser::getEmail, UserPrincipal::of,
+                                    (first, second) -> first))))
+                    .join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Загружает пользователя в текущем потоке и завершает ожидающую загрузку.
+     * Пустой или неудачный результат Caffeine удаляет из кэша сам.
+     */
+    private UserPrincipal load(String email, CompletableFuture<UserPrincipal> loading) {
+        try {
+            UserPrincipal principal = repository.findByEmail(email).map(UserPrincipal::of).orElse(null);
+            loading.complete(principal);
+            return principal;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Сбрасывает запись пользователя после изменения его данных.
+     *
+     * @param email email пользователя
+     */
+    public void invalidate(String email) {
+        principals.synchronous().invalidate(EmailAddresses.normalize(email));
+    }
+
+    /**
+     * Сбрасывает весь кэш.
+     */
+    public void invalidateAll() {
+        principals.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void onUserChanged(String email, int securityVersion) {
+        invalidate(email);
+    }
+
+    @Override
+    public void onFullFlush() {
+        invalidateAll();
+    }
+
+    /**
+     * Счетчики попаданий, промахов и вытеснений.
+     *
+     * @return статистика кэша
+     */
+    public CacheStats stats() {
+        return principals.synchronous().stats();
+    }
+}
@@ -1,10 +1,41 @@
 package com.alibou.security.user;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserRepository extends JpaRepository<SecurityUser, Integer> {
 
+    // Роли загружаются тем же запросом через join, а не отдельным select
+    @EntityGraph(attributePaths = "roles")
     Optional<SecurityUser> findByEmail(String email);
+
+    /**
+     * Загружает пользователей с ролями по набору email одним запросом.
+     */
+    @EntityGraph(attributePaths = "roles")
+    List<SecurityUser> findAllByEmailIn(Collection<String> emails);
+
+    /**
+     * Заменяет хэш пароля, только если он не изменился с момента чтения.
+     *
+     * @return количество обновленных строк
+     */
+    @Transactional
+    @Modifying
+    @Query("update SecurityUser u set u.password = :newPassword where u.id = :id and u.password = :oldPassword")
+    int updatePassword(Integer id, String oldPassword, String newPassword);
+
+    /**
+     * Возвращает те email из переданных, которые уже заняты.
+     */
+    @Query("select u.email from SecurityUser u where u.email in :emails")
+    Set<String> findExistingEmails(Collection<String> emails);
 }
@@ -0,0 +1,39 @@
+package com.alibou.security.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Set;
+
+/**
+ * Смена ролей пользователя администратором. Ранее выданные токены пользователя перестают
+ * приниматься, и ему приходится войти заново (см. {@link UserService#changeRoles(String, Set)}).
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/api/v1/admin/users")
+@RequiredArgsConstructor
+public class UserRoleController {
+
+    private final UserService userService;
+
+    @PutMapping("/{email}/roles")
+    public ResponseEntity<Void> changeRoles(@PathVariable String email, @RequestBody Set<Role> roles) {
+        if (roles.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            userService.changeRoles(email, roles);
+        } catch (UsernameNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.alibou.security.user;
+
+import com.alibou.security.invalidation.InvalidationBus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Сервис изменения данных пользователя, влияющих на авторизацию.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserService {
+
+    private final UserRepository repository;
+    private final UserPrincipalCache principalCache;
+    private final SecurityVersionRegistry versionRegistry;
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Меняет роли пользователя и повышает его версию безопасности,
+     * чтобы ранее выданные токены перестали приниматься.
+     * Кэш пользователей и реестр версий обновляются только после фиксации транзакции: запрос,
+     * пришедший до нее, иначе снова положил бы в кэш старую строку с прежней версией.
+     *
+     * @param email email пользователя
+     * @param roles новый набор ролей
+     * @return обновленный пользователь
+     */
+    @Transactional
+    public SecurityUser changeRoles(String email, Set<Role> roles) {
+        email = EmailAddresses.normalize(email);
+        SecurityUser securityUser = repository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        securityUser.setRoles(new HashSet<>(roles));
+        securityUser.setSecurityVersion(securityUser.getSecurityVersion() + 1);
+        SecurityUser saved = repository.save(securityUser);
+
+        String changedEmail = email;
+        int version = saved.getSecurityVersion();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                principalCache.invalidate(changedEmail);
+                versionRegistry.record(changedEmail, version);
+            }
+        });
+        // Шина сама откладывает отправку до фиксации транзакции
+        invalidationBus.userChanged(email, version);
+        return saved;
+    }
+}
@@ -0,0 +1,43 @@
+-- Исходная схема: совпадает с тем, что Hibernate создавал по сущностям при ddl-auto=create-drop.
+-- Дальнейшие изменения схемы - только новыми версиями V<N>__*.sql, примененные файлы не редактируются.
+
+-- Идентификаторы пользователей выдаются блоками по 50 (pooled-lo, UserBatchWriter.ID_BLOCK_SIZE)
+create sequence security_users_seq start with 1 increment by 50;
+
+create table security_users (
+    id               integer not null,
+    security_version integer not null,
+    email            varchar(255),
+    firstname        varchar(255),
+    lastname         varchar(255),
+    password         varchar(255),
+    constraint pk_security_users primary key (id)
+);
+
+create table user_role (
+    user_id integer not null,
+    roles   varchar(255),
+    constraint ck_user_role_roles check (roles in ('USER', 'ADMIN')),
+    constraint fk_user_role_user foreign key (user_id) references security_users (id)
+);
+
+-- Postgres не индексирует внешние ключи сам, а роли читаются по user_id при каждой загрузке пользователя
+create index idx_user_role_user on user_role (user_id);
+
+create table refresh_tokens (
+    token_hash varchar(64)                 not null,
+    family_id  varchar(36)                 not null,
+    email      varchar(255)                not null,
+    expires_at timestamp(6) with time zone not null,
+    used       boolean                     not null,
+    revoked    boolean                     not null,
+    constraint pk_refresh_tokens primary key (token_hash)
+);
+
+create index idx_refresh_tokens_family on refresh_tokens (family_id);
+
+create table revoked_tokens (
+    token_id   varchar(64)                 not null,
+    expires_at timestamp(6) with time zone not null,
+    constraint pk_revoked_tokens primary key (token_id)
+);
@@ -0,0 +1,17 @@
+-- Журнал аудита аутентификации (AuditLog пишет пакетами, AuditController читает от новых к старым)
+create table auth_audit_events (
+    id             bigint generated by default as identity,
+    occurred_at    timestamp(6) with time zone not null,
+    type           varchar(32)                 not null,
+    principal      varchar(255),
+    client_address varchar(64),
+    detail         varchar(255),
+    constraint pk_auth_audit_events primary key (id),
+    constraint ck_auth_audit_events_type check (type in ('REGISTERED', 'LOGIN_SUCCEEDED', 'LOGIN_FAILED',
+        'LOGIN_THROTTLED', 'TOKEN_REFRESHED', 'REFRESH_REJECTED', 'TOKEN_REJECTED'))
+);
+
+-- Выборка по пользователю с постраничной выдачей по id
+create index idx_auth_audit_events_principal on auth_audit_events (principal, id);
+-- Выборка по времени и удаление записей старше срока хранения
+create index idx_auth_audit_events_occurred_at on auth_audit_events (occurred_at);
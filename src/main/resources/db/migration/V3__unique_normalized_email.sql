@@ -0,0 +1,14 @@
+-- Email хранится в едином виде (EmailAddresses.normalize) и уникален: поиск при входе и на каждом запросе
+-- с cookie идет по индексу, а одновременные регистрации одного email не проходят обе.
+-- Если после приведения найдутся повторы, создание индекса остановит миграцию - их нужно объединить вручную.
+--
+-- strip() в Java убирает любые пробельные символы по краям, а не только пробелы, как trim в SQL, - отсюда \s.
+-- Каждое выражение привязано к началу или концу строки, поэтому совпадение одно и флаг 'g' не нужен
+-- (H2 в тестах его не принимает). Остающиеся отличия от normalize: \s и lower() в Postgres следуют
+-- локали базы (LC_CTYPE), а Java - таблицам Unicode и Locale.ROOT. Для email из ASCII результат одинаков;
+-- адреса с пробелами Unicode или буквами не из ASCII стоит проверить отдельно.
+update security_users
+set email = lower(regexp_replace(regexp_replace(email, '^\s+', ''), '\s+$', ''))
+where email <> lower(regexp_replace(regexp_replace(email, '^\s+', ''), '\s+$', ''));
+
+create unique index uk_security_users_email on security_users (email);
@@ -0,0 +1,2 @@
+-- Периодическое удаление истекших refresh-токенов (RefreshTokenWriter) идет по индексу, а не перебором таблицы
+create index idx_refresh_tokens_expires_at on refresh_tokens (expires_at);
@@ -0,0 +1,118 @@
+package com.alibou.security.reactive;
+
+import com.alibou.security.audit.AuditEventType;
+import com.alibou.security.audit.AuditLog;
+import com.alibou.security.auth.AuthCookies;
+import com.alibou.security.config.AuthenticationMetrics;
+import com.alibou.security.config.AuthenticationMetrics.FilterOutcome;
+import com.alibou.security.config.AuthenticationMetrics.FilterStage;
+import com.alibou.security.config.JwtService;
+import com.alibou.security.config.TokenVerification;
+import com.alibou.security.config.VerifiedToken;
+import com.alibou.security.token.TokenDenylist;
+import com.alibou.security.user.SecurityVersionRegistry;
+import com.alibou.security.user.UserPrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpCookie;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Реактивный вариант {@link com.alibou.security.config.JwtAuthenticationFilter}: те же этапы и исходы
+ * в {@link AuthenticationMetrics}, но пользователь загружается через R2DBC без блокировки потока.
+ * <p>
+ * Фильтр не объявлен бином: WebFilter-бины WebFlux применяет ко всем запросам,
+ * а этот фильтр должен работать только внутри цепочки безопасности.
+ */
+@RequiredArgsConstructor
+public class JwtAuthenticationWebFilter implements WebFilter {
+
+    private final JwtService jwtService;
+    private final R2dbcUserDetailsService userDetailsService;
+    private final SecurityVersionRegistry versionRegistry;
+    private final TokenDenylist denylist;
+    private final AuthenticationMetrics metrics;
+    private final AuditLog auditLog;
+    private final boolean stateless;
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        long startedAt = System.nanoTime();
+        HttpCookie cookie = exchange.getRequest().getCookies().getFirst(AuthCookies.ACCESS_TOKEN);
+        long stageStartedAt = metrics.recordStage(FilterStage.COOKIE, startedAt);
+
+        if (cookie == null || cookie.getValue().isEmpty()) {
+            metrics.recordOutcome(FilterOutcome.NO_TOKEN);
+            return chain.filter(exchange);
+        }
+        TokenVerification verification = jwtService.tryVerify(cookie.getValue());
+        long verifiedAt = metrics.recordStage(FilterStage.VERIFY, stageStartedAt);
+
+        FilterOutcome outcome = FilterOutcome.of(verification, denylist);
+        if (outcome != FilterOutcome.VALID) {
+            metrics.recordOutcome(outcome);
+            audit(exchange, verification.token(), outcome);
+            return chain.filter(exchange);
+        }
+        VerifiedToken token = verification.token();
+        Mono<Resolution> resolution = stateless
+                ? Mono.just(authenticateFromClaims(token))
+                : authenticateFromUser(token);
+        return resolution.flatMap(resolved -> {
+            metrics.recordStage(FilterStage.PRINCIPAL, verifiedAt);
+            metrics.recordOutcome(resolved.outcome());
+            if (resolved.authentication() == null) {
+                audit(exchange, token, resolved.outcome());
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange)
+                    .contextWrite(ReactiveSecurityContextHolder.withAuthentication(resolved.authentication()));
+        });
+    }
+
+    private void audit(ServerWebExchange exchange, VerifiedToken token, FilterOutcome outcome) {
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        auditLog.record(AuditEventType.TOKEN_REJECTED, token != null ? token.subject() : null,
+                remoteAddress != null ? remoteAddress.getHostString() : null, outcome.name());
+    }
+
+    /**
+     * Строит аутентификацию по пользователю, загруженному через {@link R2dbcUserDetailsService}.
+     */
+    private Mono<Resolution> authenticateFromUser(VerifiedToken token) {
+        return userDetailsService.findByUsername(token.subject())
+                .map(userDetails -> token.isValidFor(userDetails)
+                        ? new Resolution(FilterOutcome.VALID, new UsernamePasswordAuthenticationToken(
+                                userDetails, null, userDetails.getAuthorities()))
+                        : new Resolution(FilterOutcome.REJECTED, null))
+                // Пользователь удален после выпуска токена: запрос продолжается без аутентификации
+                .defaultIfEmpty(new Resolution(FilterOutcome.USER_NOT_FOUND, null));
+    }
+
+    /**
+     * Строит аутентификацию только по claims токена. Токен с устаревшей версией безопасности не принимается.
+     */
+    private Resolution authenticateFromClaims(VerifiedToken token) {
+        if (token.isExpired() || !versionRegistry.isCurrent(token.subject(), token.securityVersion())) {
+            return new Resolution(FilterOutcome.REJECTED, null);
+        }
+        UserPrincipal principal = token.principal();
+        return new Resolution(FilterOutcome.VALID,
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    /**
+     * Исход обработки токена и аутентификация, если токен принят.
+     */
+    private record Resolution(FilterOutcome outcome, Authentication authentication) {
+    }
+}
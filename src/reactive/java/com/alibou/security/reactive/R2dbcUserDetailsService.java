@@ -0,0 +1,118 @@
+package com.alibou.security.reactive;
+
+import com.alibou.security.invalidation.InvalidationHandler;
+import com.alibou.security.user.EmailAddresses;
+import com.alibou.security.user.Role;
+import com.alibou.security.user.UserPrincipal;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Загрузка пользователей через R2DBC для реактивного варианта приложения.
+ * <p>
+ * Пользователь и его роли читаются одним запросом; результат кэшируется так же,
+ * как в {@link com.alibou.security.user.UserPrincipalCache}, - без хэша пароля. Параллельные промахи
+ * по одному email ждут одну загрузку, поток event loop при этом не блокируется.
+ * Пользователь с хэшем для проверки пароля при входе загружается мимо кэша: {@link #findForLogin(String)}.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class R2dbcUserDetailsService implements ReactiveUserDetailsService, InvalidationHandler {
+
+    private static final String FIND_BY_EMAIL_SQL = "select u.id, u.email, u.password, "
+            + "u.security_version, r.roles from security_users u "
+            + "left join user_role r on r.user_id = u.id where u.email = :email";
+
+    private final DatabaseClient databaseClient;
+    private final AsyncCache<String, UserPrincipal> principals;
+
+    public R2dbcUserDetailsService(DatabaseClient databaseClient,
+                                   @Value("${auth.principal-cache.ttl:5m}") Duration ttl,
+                                   @Value("${auth.principal-cache.max-size:10000}") long maxSize) {
+        this.databaseClient = databaseClient;
+        this.principals = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .buildAsync();
+    }
+
+    /**
+     * Ищет пользователя по email. Отсутствующие пользователи не кэшируются.
+     *
+     * @param username email пользователя
+     * @return пользователь или пустой результат
+     */
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        String key = EmailAddresses.normalize(username);
+        // Отмена подписки одним запросом не должна отменять загрузку, которую ждут другие
+        return Mono.fromFuture(() -> principals.get(key, (email, executor) -> load(email)
+                .map(UserPrincipal::withoutPassword)
+                .toFuture()), true);
+    }
+
+    /**
+     * Загружает пользователя вместе с хэшем пароля для проверки при входе. Результат не кэшируется.
+     *
+     * @param username email пользователя
+     * @return пользователь с хэшем пароля или пустой результат
+     */
+    public Mono<UserPrincipal> findForLogin(String username) {
+        return load(EmailAddresses.normalize(username));
+    }
+
+    /**
+     * Сбрасывает запись пользователя после изменения его данных.
+     *
+     * @param email email пользователя
+     */
+    public void invalidate(String email) {
+        principals.synchronous().invalidate(EmailAddresses.normalize(email));
+    }
+
+    @Override
+    public void onUserChanged(String email, int securityVersion) {
+        invalidate(email);
+    }
+
+    @Override
+    public void onFullFlush() {
+        principals.synchronous().invalidateAll();
+    }
+
+    private Mono<UserPrincipal> load(String email) {
+        return databaseClient.sql(FIND_BY_EMAIL_SQL)
+                .bind("email", email)
+                .fetch()
+                .all()
+                .collectList()
+                .flatMap(rows -> rows.isEmpty() ? Mono.empty() : Mono.just(toUser(rows)));
+    }
+
+    private static UserPrincipal toUser(List<Map<String, Object>> rows) {
+        Map<String, Object> first = rows.get(0);
+        int roleMask = 0;
+        for (Map<String, Object> row : rows) {
+            if (row.get("roles") instanceof String role) {
+                roleMask |= Role.valueOf(role).bit();
+            }
+        }
+        return new UserPrincipal(
+                ((Number) first.get("id")).intValue(),
+                (String) first.get("email"),
+                (String) first.get("password"),
+                roleMask,
+                ((Number) first.get("security_version")).intValue());
+    }
+}
@@ -0,0 +1,64 @@
+package com.alibou.security.reactive;
+
+import com.alibou.security.auth.AuthCookies;
+import com.alibou.security.auth.AuthenticationRequest;
+import com.alibou.security.auth.AuthenticationResponse;
+import com.alibou.security.auth.RegisterRequest;
+import com.alibou.security.token.InvalidRefreshTokenException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/api/v1/auth")
+@RequiredArgsConstructor
+public class ReactiveAuthenticationController {
+
+    private final ReactiveAuthenticationService service;
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<AuthenticationResponse>> register(
+            @RequestBody RegisterRequest request) {
+        return service.register(request).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/authenticate")
+    public Mono<ResponseEntity<AuthenticationResponse>> authenticate(
+            AuthenticationRequest request,
+            ServerHttpRequest serverHttpRequest,
+            ServerHttpResponse serverHttpResponse) {
+
+        InetSocketAddress remoteAddress = serverHttpRequest.getRemoteAddress();
+        String clientAddress = remoteAddress == null ? null : remoteAddress.getHostString();
+        return service.authenticate(request, clientAddress)
+                .doOnNext(authenticationResponse -> AuthCookies.write(serverHttpResponse, authenticationResponse))
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/refresh-token")
+    public Mono<ResponseEntity<AuthenticationResponse>> refreshToken(
+            @CookieValue(name = AuthCookies.REFRESH_TOKEN, required = false) String refreshToken,
+            ServerHttpResponse serverHttpResponse) {
+
+        return service.refreshToken(refreshToken)
+                .doOnNext(authenticationResponse -> AuthCookies.write(serverHttpResponse, authenticationResponse))
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Неверный email или пароль, недействительный или повторно использованный refresh-токен.
+     */
+    @ExceptionHandler({AuthenticationException.class, InvalidRefreshTokenException.class})
+    public ResponseEntity<Void> authenticationFailed() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+}
@@ -0,0 +1,182 @@
+package com.alibou.security.reactive;
+
+import com.alibou.security.audit.AuditEventType;
+import com.alibou.security.audit.AuditLog;
+import com.alibou.security.auth.AuthenticationRequest;
+import com.alibou.security.auth.AuthenticationResponse;
+import com.alibou.security.auth.EmailAlreadyRegisteredException;
+import com.alibou.security.auth.LoginThrottle;
+import com.alibou.security.auth.LoginThrottledException;
+import com.alibou.security.auth.RegisterRequest;
+import com.alibou.security.config.AuthenticationMetrics;
+import com.alibou.security.config.AuthenticationMetrics.LoginOperation;
+import com.alibou.security.config.JwtService;
+import com.alibou.security.config.OffloadingPasswordEncoder;
+import com.alibou.security.config.PasswordHashingExecutor;
+import com.alibou.security.config.PasswordHashingExecutor.HashOperation;
+import com.alibou.security.config.PasswordRehashService;
+import com.alibou.security.invalidation.InvalidationBus;
+import com.alibou.security.token.InvalidRefreshTokenException;
+import com.alibou.security.token.RefreshTokenService;
+import com.alibou.security.user.EmailAddresses;
+import com.alibou.security.user.Role;
+import com.alibou.security.user.SecurityUser;
+import com.alibou.security.user.UserPrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Реактивный вариант {@link com.alibou.security.auth.AuthenticationService}.
+ * <p>
+ * Хэширование паролей выполняется в общем пуле {@link PasswordHashingExecutor}, доступ к базе - через R2DBC,
+ * поэтому потоки event loop не блокируются. Токены выпускает тот же {@link JwtService}.
+ * {@link RefreshTokenService} блокирующий (JPA), поэтому выпуск и обмен refresh-токенов
+ * выполняются в {@link Schedulers#boundedElastic()}.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Service
+@RequiredArgsConstructor
+public class ReactiveAuthenticationService {
+
+    // Пароль для сверки с несуществующим пользователем, чтобы время ответа не выдавало наличие email
+    private static final String USER_NOT_FOUND_PASSWORD = "userNotFoundPassword";
+
+    private final R2dbcUserDetailsService userDetailsService;
+    private final ReactiveUserWriter userWriter;
+    private final OffloadingPasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final PasswordRehashService passwordRehashService;
+    private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
+    private final AuthenticationMetrics metrics;
+    private final LoginThrottle loginThrottle;
+    private final InvalidationBus invalidationBus;
+    private final AuditLog auditLog;
+
+    private volatile String userNotFoundEncodedPassword;
+
+    /**
+     * Регистрирует нового пользователя.
+     *
+     * @param request данные для регистрации
+     * @return токены нового пользователя; {@link EmailAlreadyRegisteredException}, если email уже занят
+     */
+    public Mono<AuthenticationResponse> register(RegisterRequest request) {
+        return timed(LoginOperation.REGISTER, () -> Mono
+                .fromFuture(() -> passwordHashingExecutor.executeAsync(HashOperation.ENCODE,
+                        () -> passwordEncoder.delegate().encode(request.getPassword())))
+                .flatMap(encodedPassword -> userWriter.insert(SecurityUser.builder()
+                        .firstname(request.getFirstname())
+                        .lastname(request.getLastname())
+                        .email(EmailAddresses.normalize(request.getEmail()))
+                        .password(encodedPassword)
+                        .roles(Set.of(Role.USER))
+                        .build()))
+                .onErrorMap(DataIntegrityViolationException.class, EmailAlreadyRegisteredException::new)
+                .doOnNext(securityUser -> {
+                    userDetailsService.invalidate(securityUser.getEmail());
+                    invalidationBus.userChanged(securityUser.getEmail(), securityUser.getSecurityVersion());
+                    auditLog.record(AuditEventType.REGISTERED, securityUser.getEmail(), null, null);
+                })
+                .map(UserPrincipal::of)
+                .flatMap(this::response));
+    }
+
+    /**
+     * Проверяет email и пароль пользователя. Частота попыток ограничивается до загрузки пользователя.
+     *
+     * @param request       данные для входа
+     * @param clientAddress адрес клиента для ограничения частоты попыток
+     * @return токены пользователя; {@link BadCredentialsException}, если email или пароль неверны,
+     * {@link LoginThrottledException}, если попытки исчерпаны
+     */
+    public Mono<AuthenticationResponse> authenticate(AuthenticationRequest request, String clientAddress) {
+        String email = EmailAddresses.normalize(request.getEmail());
+        return Mono.fromRunnable(() -> loginThrottle.acquire(email, clientAddress))
+                .doOnError(LoginThrottledException.class, e -> auditLog.record(
+                        AuditEventType.LOGIN_THROTTLED, email, clientAddress, null))
+                .then(authenticate(request))
+                .doOnNext(response -> auditLog.record(
+                        AuditEventType.LOGIN_SUCCEEDED, email, clientAddress, null))
+                .doOnError(AuthenticationException.class, e -> auditLog.record(
+                        AuditEventType.LOGIN_FAILED, email, clientAddress, e.getClass().getSimpleName()));
+    }
+
+    private Mono<AuthenticationResponse> authenticate(AuthenticationRequest request) {
+        return timed(LoginOperation.AUTHENTICATE, () -> userDetailsService.findForLogin(request.getEmail())
+                .flatMap(principal -> matches(request.getPassword(), principal.password())
+                        .flatMap(matches -> matches
+                                ? Mono.just(principal)
+                                : Mono.error(new BadCredentialsException("Bad credentials"))))
+                .switchIfEmpty(Mono.defer(() -> matches(request.getPassword(), null)
+                        .then(Mono.error(new BadCredentialsException("Bad credentials")))))
+                .doOnNext(principal -> passwordRehashService.rehashIfNeeded(principal, request.getPassword()))
+                .flatMap(this::response));
+    }
+
+    /**
+     * Обновляет пару токенов по refresh-токену, как {@link com.alibou.security.auth.AuthenticationService}.
+     *
+     * @param refreshToken предъявленный refresh-токен
+     * @return новые токены; {@link InvalidRefreshTokenException}, если refresh-токен недействителен
+     * или уже использован
+     */
+    public Mono<AuthenticationResponse> refreshToken(String refreshToken) {
+        return Mono.fromCallable(() -> refreshTokenService.rotate(refreshToken))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(rotation -> userDetailsService.findByUsername(rotation.email())
+                        .cast(UserPrincipal.class)
+                        .switchIfEmpty(Mono.error(() -> new InvalidRefreshTokenException("User not found")))
+                        .map(principal -> {
+                            auditLog.record(AuditEventType.TOKEN_REFRESHED, principal.email(), null, null);
+                            return AuthenticationResponse.builder()
+                                    .token(jwtService.generateAccessToken(principal))
+                                    .refreshToken(rotation.refreshToken())
+                                    .build();
+                        }))
+                .doOnError(InvalidRefreshTokenException.class, e -> auditLog.record(
+                        AuditEventType.REFRESH_REJECTED, null, null, e.getMessage()));
+    }
+
+    /**
+     * Сверяет пароль в пуле хэширования; без хэша сверяет с хэшем-заглушкой.
+     */
+    private Mono<Boolean> matches(String rawPassword, String encodedPassword) {
+        return Mono.fromFuture(() -> passwordHashingExecutor.executeAsync(HashOperation.MATCHES, () -> passwordEncoder.delegate()
+                .matches(rawPassword, encodedPassword != null ? encodedPassword : userNotFoundEncodedPassword())));
+    }
+
+    private String userNotFoundEncodedPassword() {
+        if (userNotFoundEncodedPassword == null) {
+            userNotFoundEncodedPassword = passwordEncoder.delegate().encode(USER_NOT_FOUND_PASSWORD);
+        }
+        return userNotFoundEncodedPassword;
+    }
+
+    private Mono<AuthenticationResponse> response(UserPrincipal principal) {
+        return Mono.fromCallable(() -> refreshTokenService.issue(principal.email()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(refreshToken -> AuthenticationResponse.builder()
+                        .token(jwtService.generateAccessToken(principal))
+                        .refreshToken(refreshToken)
+                        .build());
+    }
+
+    private <T> Mono<T> timed(LoginOperation operation, Supplier<Mono<T>> action) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return action.get()
+                    .doOnSuccess(result -> metrics.recordLogin(operation, true, startedAt))
+                    .doOnError(e -> metrics.recordLogin(operation, false, startedAt));
+        });
+    }
+}
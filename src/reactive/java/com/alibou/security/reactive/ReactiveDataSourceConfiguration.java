@@ -0,0 +1,26 @@
+package com.alibou.security.reactive;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JDBC-источник данных для сборки с профилем reactive.
+ * <p>
+ * При наличии R2DBC Spring Boot не создает DataSource, а без него пропадают JPA-репозитории,
+ * от которых зависят общие сервисы (refresh-токены, денайлист, массовый импорт).
+ * Горячие пути - вход, регистрация и загрузка пользователя в фильтре - идут через R2DBC.
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
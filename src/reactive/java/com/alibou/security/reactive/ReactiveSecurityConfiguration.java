@@ -0,0 +1,77 @@
+package com.alibou.security.reactive;
+
+import com.alibou.security.audit.AuditLog;
+import com.alibou.security.config.AuthenticationMetrics;
+import com.alibou.security.config.JwtService;
+import com.alibou.security.config.MetricsScrapeToken;
+import com.alibou.security.token.TokenDenylist;
+import com.alibou.security.user.SecurityVersionRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Конфигурация безопасности реактивного варианта. Правила доступа повторяют
+ * {@link com.alibou.security.config.SecurityConfiguration}; страницы входа с формой
+ * и выход остаются только в сервлетном варианте.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Configuration
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfiguration {
+
+    /**
+     * Определяет цепочку фильтров безопасности.
+     *
+     * @param http объект ServerHttpSecurity
+     * @return объект SecurityWebFilterChain
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         JwtService jwtService,
+                                                         R2dbcUserDetailsService userDetailsService,
+                                                         SecurityVersionRegistry versionRegistry,
+                                                         TokenDenylist denylist,
+                                                         AuthenticationMetrics metrics,
+                                                         AuditLog auditLog,
+                                                         MetricsScrapeToken metricsScrapeToken,
+                                                         @Value("${auth.stateless:false}") boolean stateless) {
+        JwtAuthenticationWebFilter jwtAuthFilter = new JwtAuthenticationWebFilter(
+                jwtService, userDetailsService, versionRegistry, denylist, metrics, auditLog, stateless);
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                // Сессий нет: аутентификация восстанавливается из cookie на каждом запросе
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchanges -> exchanges
+                        .pathMatchers("/api/v1/auth/**", "/api/v1/greeting-controller/**", "/.well-known/**")
+                        .permitAll()
+                        .pathMatchers("/api/v1/demo-controller/with-auth", "/api/v1/index-controller/**")
+                        .hasAnyAuthority("USER")
+                        .pathMatchers("/api/v1/demo-controller/**")
+                        .permitAll()
+                        .pathMatchers("/actuator/health/**")
+                        .permitAll()
+                        // Prometheus предъявляет токен сборщика, а не пользовательский вход
+                        .pathMatchers("/actuator/prometheus")
+                        .access((authentication, context) -> Mono.just(new AuthorizationDecision(
+                                metricsScrapeToken.matches(context.getExchange().getRequest().getHeaders()
+                                        .getFirst(HttpHeaders.AUTHORIZATION)))))
+                        .pathMatchers("/actuator/**", "/api/v1/admin/**")
+                        .hasAnyAuthority("ADMIN")
+                        .anyExchange()
+                        .permitAll())
+                .addFilterAt(jwtAuthFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.alibou.security.reactive;
+
+import com.alibou.security.user.Role;
+import com.alibou.security.user.SecurityUser;
+import com.alibou.security.user.UserBatchWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Сохранение новых пользователей через R2DBC.
+ * <p>
+ * Идентификаторы выдаются из той же последовательности и тем же порядком pooled-lo,
+ * что и в JPA-сущности: значение последовательности - начало блока из
+ * {@link UserBatchWriter#ID_BLOCK_SIZE} идентификаторов. Блок берется без блокировок;
+ * если два запроса одновременно исчерпали блок, лишний блок просто пропускается.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class ReactiveUserWriter {
+
+    private static final String NEXT_BLOCK_SQL = "select nextval('" + UserBatchWriter.ID_SEQUENCE + "')";
+    private static final String INSERT_USER_SQL = "insert into security_users "
+            + "(id, firstname, lastname, email, password, security_version) "
+            + "values (:id, :firstname, :lastname, :email, :password, :securityVersion)";
+    private static final String INSERT_ROLE_SQL = "insert into user_role (user_id, roles) values (:userId, :role)";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final AtomicReference<IdBlock> block = new AtomicReference<>(new IdBlock(0, 0));
+
+    public ReactiveUserWriter(DatabaseClient databaseClient, ReactiveTransactionManager transactionManager) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    /**
+     * Сохраняет пользователя и его роли в одной транзакции.
+     *
+     * @param securityUser новый пользователь без идентификатора
+     * @return сохраненный пользователь с присвоенным идентификатором
+     */
+    public Mono<SecurityUser> insert(SecurityUser securityUser) {
+        return nextId()
+                .flatMap(id -> {
+                    securityUser.setId(id);
+                    // Имя и фамилия необязательны, а bind(name, null) в R2DBC не допускается
+                    Mono<Long> user = databaseClient.sql(INSERT_USER_SQL)
+                            .bind("id", id)
+                            .bind("firstname", Parameter.fromOrEmpty(securityUser.getFirstname(), String.class))
+                            .bind("lastname", Parameter.fromOrEmpty(securityUser.getLastname(), String.class))
+                            .bind("email", securityUser.getEmail())
+                            .bind("password", securityUser.getPassword())
+                            .bind("securityVersion", securityUser.getSecurityVersion())
+                            .fetch()
+                            .rowsUpdated();
+                    Flux<Long> roles = Flux.fromIterable(securityUser.getRoles())
+                            .concatMap(role -> insertRole(id, role));
+                    return user.thenMany(roles).then(Mono.just(securityUser));
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Long> insertRole(int userId, Role role) {
+        return databaseClient.sql(INSERT_ROLE_SQL)
+                .bind("userId", userId)
+                .bind("role", role.name())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Mono<Integer> nextId() {
+        return Mono.defer(() -> {
+            IdBlock current = block.get();
+            int id = current.next().getAndIncrement();
+            if (id < current.limit()) {
+                return Mono.just(id);
+            }
+            return databaseClient.sql(NEXT_BLOCK_SQL)
+                    .map(row -> row.get(0, Number.class))
+                    .one()
+                    .map(lo -> {
+                        // Первый идентификатор нового блока забирает этот запрос
+                        int low = lo.intValue();
+                        block.compareAndSet(current, new IdBlock(low + 1, low + UserBatchWriter.ID_BLOCK_SIZE));
+                        return low;
+                    });
+        });
+    }
+
+    private record IdBlock(AtomicInteger next, int limit) {
+
+        IdBlock(int next, int limit) {
+            this(new AtomicInteger(next), limit);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.alibou.security.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditRingBufferTest {
+
+    @Test
+    void rejectsWhenFullAndAcceptsAgainAfterDrain() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertTrue(buffer.offer(4));
+        assertTrue(buffer.offer(5));
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+        assertEquals(0, buffer.drainTo(drained, 10));
+    }
+
+    @Test
+    void concurrentProducersLoseNothingThatWasAccepted() throws Exception {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 50_000;
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (!buffer.offer(base + i)) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        List<Integer> batch = new ArrayList<>();
+        while (done.getCount() > 0 || buffer.drainTo(batch, 256) > 0) {
+            buffer.drainTo(batch, 256);
+            for (Integer value : batch) {
+                assertTrue(seen.add(value), "duplicate " + value);
+            }
+            batch.clear();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(producers * perProducer, seen.size() + rejected.get());
+    }
+}
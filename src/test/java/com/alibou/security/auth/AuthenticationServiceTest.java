@@ -0,0 +1,149 @@
+package com.alibou.security.auth;
+
+import com.alibou.security.audit.AuditEventType;
+import com.alibou.security.audit.AuditLog;
+import com.alibou.security.audit.AuditRecord;
+import com.alibou.security.audit.AuditRecordRepository;
+import com.alibou.security.user.UserPrincipalCache;
+import com.alibou.security.user.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:auth;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database=h2",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "auth.password.bcrypt.min-strength=4",
+        "auth.password.target-hash-time=1ms",
+        "auth.invalidation.transport=loopback"
+})
+class AuthenticationServiceTest {
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private UserPrincipalCache principalCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuditRecordRepository auditRecordRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void loginLoadsUserWithRolesInSingleStatement() {
+        authenticationService.register(RegisterRequest.builder()
+                .firstname("Ivan")
+                .lastname("Ivanov")
+                .email("ivan@example.com")
+                .password("secret")
+                .build());
+        principalCache.invalidateAll();
+        statistics.clear();
+        // Контекст общий для тестов класса, поэтому считается прирост счетчика
+        double successfulLogins = successfulLogins();
+
+        AuthenticationResponse response = authenticationService.authenticate(
+                new AuthenticationRequest("ivan@example.com", "secret"), "127.0.0.1");
+
+        assertNotNull(response.getToken());
+        // Пользователь и его роли - один select; повторной загрузки после аутентификации нет
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(successfulLogins + 1, successfulLogins());
+        // Хэш пароля нужен только для входа и в кэш пользователей не попадает
+        assertNull(principalCache.findByEmail("ivan@example.com").orElseThrow().password());
+    }
+
+    private double successfulLogins() {
+        return meterRegistry.find("auth.login")
+                .tag("operation", "authenticate")
+                .tag("outcome", "success")
+                .timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    @Test
+    void loginOutcomesAreWrittenToAuditLogInBatches() {
+        authenticationService.register(RegisterRequest.builder()
+                .firstname("Petr")
+                .lastname("Petrov")
+                .email("petr@example.com")
+                .password("secret")
+                .build());
+        assertThrows(BadCredentialsException.class, () -> authenticationService.authenticate(
+                new AuthenticationRequest("petr@example.com", "wrong"), "10.0.0.7"));
+        authenticationService.authenticate(new AuthenticationRequest("petr@example.com", "secret"), "10.0.0.7");
+
+        auditLog.flush();
+
+        List<AuditRecord> records = auditRecordRepository.search("petr@example.com", null, null, null, null,
+                Limit.of(10));
+        assertEquals(List.of(AuditEventType.LOGIN_SUCCEEDED, AuditEventType.LOGIN_FAILED, AuditEventType.REGISTERED),
+                records.stream().map(AuditRecord::getType).toList());
+        assertEquals("10.0.0.7", records.get(1).getClientAddress());
+        assertEquals("BadCredentialsException", records.get(1).getDetail());
+    }
+
+    @Test
+    void emailIsStoredNormalizedAndRegisteredOnlyOnce() {
+        authenticationService.register(RegisterRequest.builder()
+                .firstname("Anna")
+                .lastname("Smirnova")
+                .email(" Anna@Example.com ")
+                .password("secret")
+                .build());
+
+        assertThrows(EmailAlreadyRegisteredException.class, () -> authenticationService.register(
+                RegisterRequest.builder()
+                        .firstname("Anna")
+                        .lastname("Smirnova")
+                        .email("anna@example.com")
+                        .password("other")
+                        .build()));
+        AuthenticationResponse response = authenticationService.authenticate(
+                new AuthenticationRequest("ANNA@example.com", "secret"), "127.0.0.1");
+
+        assertNotNull(response.getToken());
+        assertTrue(userRepository.findByEmail("anna@example.com").isPresent());
+    }
+}
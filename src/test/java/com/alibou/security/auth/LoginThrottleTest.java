@@ -0,0 +1,49 @@
+package com.alibou.security.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Попытки за время теста не восстанавливаются
+        throttle = new LoginThrottle(meterRegistry, true,
+                3, Duration.ofHours(1), 5, Duration.ofHours(1), 1000);
+    }
+
+    @Test
+    void emailBucketIgnoresCaseAndRejectsAfterCapacity() {
+        throttle.acquire("user@mail.com", "10.0.0.1");
+        throttle.acquire("USER@mail.com", "10.0.0.2");
+        throttle.acquire(" user@mail.com", "10.0.0.3");
+
+        LoginThrottledException e = assertThrows(LoginThrottledException.class,
+                () -> throttle.acquire("user@mail.com", "10.0.0.4"));
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofMinutes(59)) > 0);
+        // Другой email не затронут
+        throttle.acquire("other@mail.com", "10.0.0.4");
+
+        assertEquals(4, meterRegistry.get("auth.login.throttle").tag("outcome", "admitted").counter().count());
+        assertEquals(1, meterRegistry.get("auth.login.throttle").tag("limit", "email").counter().count());
+    }
+
+    @Test
+    void addressBucketLimitsAttemptsAcrossEmails() {
+        for (int i = 0; i < 5; i++) {
+            throttle.acquire("user" + i + "@mail.com", "10.0.0.1");
+        }
+
+        assertThrows(LoginThrottledException.class, () -> throttle.acquire("user9@mail.com", "10.0.0.1"));
+        assertEquals(1, meterRegistry.get("auth.login.throttle").tag("limit", "address").counter().count());
+    }
+}
@@ -0,0 +1,148 @@
+package com.alibou.security.config;
+
+import com.alibou.security.user.Role;
+import com.alibou.security.user.SecurityUser;
+import com.alibou.security.user.UserPrincipal;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "K38WZTfWhc8GA9scUTOmuhTUewpgdgMD9usj8Qk81ItmBRSTYGt6iFApr8E/zFvH";
+
+    private JwtService jwtService;
+    private SecurityUser user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(new JwtKeyRing(SECRET, new JwtKeyProperties()), Duration.ofMinutes(15), 100);
+        user = SecurityUser.builder()
+                .email("user@mail.com")
+                .password("hash")
+                .roles(Set.of(Role.USER))
+                .build();
+    }
+
+    @Test
+    void verifyReturnsSubjectAndExpiry() {
+        String token = jwtService.generateToken(user);
+
+        VerifiedToken verified = jwtService.verify(token);
+
+        assertEquals("user@mail.com", verified.subject());
+        assertNotNull(verified.expiresAt());
+        assertTrue(verified.isValidFor(user));
+        assertTrue(jwtService.isTokenValid(token, user));
+    }
+
+    @Test
+    void accessTokenCarriesCompactPrincipal() {
+        UserPrincipal principal = new UserPrincipal(42, "user@mail.com", "hash",
+                Role.mask(Set.of(Role.USER, Role.ADMIN)), 3);
+
+        UserPrincipal fromClaims = jwtService.verify(jwtService.generateAccessToken(principal)).principal();
+
+        assertEquals(new UserPrincipal(42, "user@mail.com", null, principal.roleMask(), 3), fromClaims);
+        // Полномочия - общий экземпляр для маски ролей, а не новый список
+        assertSame(principal.getAuthorities(), fromClaims.getAuthorities());
+    }
+
+    @Test
+    void repeatedVerifyIsServedFromCache() {
+        String token = jwtService.generateToken(user);
+
+        assertSame(jwtService.verify(token), jwtService.verify(token));
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = jwtService.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2)
+                + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(SignatureException.class, () -> jwtService.verify(tampered));
+    }
+
+    @Test
+    void tryVerifyReportsStatusWithoutThrowing() {
+        String expired = Jwts.builder()
+                .setSubject("user@mail.com")
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(SignatureAlgorithm.HS256, SECRET)
+                .compact();
+        String token = jwtService.generateToken(user);
+        String foreign = Jwts.builder()
+                .setSubject("user@mail.com")
+                .signWith(SignatureAlgorithm.HS256, SECRET.toLowerCase())
+                .compact();
+
+        assertEquals(TokenVerification.Status.VALID, jwtService.tryVerify(token).status());
+        assertEquals(TokenVerification.Status.EXPIRED, jwtService.tryVerify(expired).status());
+        assertEquals("user@mail.com", jwtService.tryVerify(expired).token().subject());
+        assertEquals(TokenVerification.Status.BAD_SIGNATURE, jwtService.tryVerify(foreign).status());
+        assertEquals(TokenVerification.Status.MALFORMED, jwtService.tryVerify("not-a-token").status());
+        assertEquals(TokenVerification.Status.MALFORMED, jwtService.tryVerify("a.b.c.d").status());
+    }
+
+    @Test
+    void rotatedKeyRingSignsWithKidAndStillAcceptsOldTokens() throws Exception {
+        String oldToken = jwtService.generateToken(user);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        KeyPair keyPair = generator.generateKeyPair();
+        JwtKeyProperties.Key ecKey = new JwtKeyProperties.Key();
+        ecKey.setId("ec-1");
+        ecKey.setAlgorithm(SignatureAlgorithm.ES256);
+        ecKey.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        ecKey.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        JwtKeyProperties properties = new JwtKeyProperties();
+        properties.setActiveKeyId("ec-1");
+        properties.setKeys(List.of(ecKey));
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, properties);
+        JwtService rotated = new JwtService(keyRing, Duration.ofMinutes(15), 100);
+
+        String newToken = rotated.generateToken(user);
+
+        assertEquals(TokenVerification.Status.VALID, rotated.tryVerify(newToken).status());
+        assertEquals(TokenVerification.Status.VALID, rotated.tryVerify(oldToken).status());
+        assertEquals(TokenVerification.Status.MALFORMED, jwtService.tryVerify(newToken).status());
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> jwks = (List<Map<String, Object>>) keyRing.jwks().get("keys");
+        assertEquals(1, jwks.size());
+        assertEquals("ec-1", jwks.get(0).get("kid"));
+        assertEquals("EC", jwks.get(0).get("kty"));
+    }
+
+    @Test
+    void es256KeyOnOtherCurveIsRejectedAtStartup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp384r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        JwtKeyProperties.Key ecKey = new JwtKeyProperties.Key();
+        ecKey.setId("ec-384");
+        ecKey.setAlgorithm(SignatureAlgorithm.ES256);
+        ecKey.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        JwtKeyProperties properties = new JwtKeyProperties();
+        properties.setKeys(List.of(ecKey));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new JwtKeyRing(SECRET, properties));
+        assertTrue(e.getMessage().contains("P-256"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.alibou.security.config;
+
+import com.alibou.security.user.Role;
+import com.alibou.security.user.SecurityUser;
+import com.alibou.security.user.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCacheFilterTest {
+
+    private final AtomicInteger renders = new AtomicInteger();
+    // Отрисовка зависит от пользователя так же, как блоки sec:authorize
+    private final FilterChain renderingChain = (request, response) -> {
+        renders.incrementAndGet();
+        response.setContentType("text/html;charset=UTF-8");
+        boolean authenticated = SecurityContextHolder.getContext().getAuthentication() != null;
+        response.getOutputStream().write((authenticated ? "<p>user</p>" : "<p>anonymous</p>")
+                .getBytes(StandardCharsets.UTF_8));
+    };
+
+    private PageCacheFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new PageCacheFilter(new SimpleMeterRegistry(), true, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatVisitIsServedFromCacheAndRevalidatedWithEtag() throws Exception {
+        MockHttpServletResponse first = get("/api/v1/auth2/login-page", null);
+        MockHttpServletResponse second = get("/api/v1/auth2/login-page", null);
+
+        assertEquals(1, renders.get());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals("max-age=60, public", second.getHeader("Cache-Control"));
+        String etag = second.getHeader("ETag");
+        assertNotNull(etag);
+        assertNotNull(second.getHeader("Last-Modified"));
+
+        MockHttpServletResponse revalidated = get("/api/v1/auth2/login-page", etag);
+        assertEquals(304, revalidated.getStatus());
+        assertEquals(0, revalidated.getContentAsByteArray().length);
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void roleDependentPageIsCachedPerVariant() throws Exception {
+        MockHttpServletResponse anonymous = get("/api/v1/greeting-controller", null);
+
+        UserPrincipal user = UserPrincipal.of(SecurityUser.builder()
+                .id(1).email("user@mail.com").password("password").roles(Set.of(Role.USER)).build());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        MockHttpServletResponse signedIn = get("/api/v1/greeting-controller", null);
+        get("/api/v1/greeting-controller", null);
+
+        assertEquals(2, renders.get());
+        assertEquals("<p>anonymous</p>", anonymous.getContentAsString());
+        assertEquals("<p>user</p>", signedIn.getContentAsString());
+        assertNotEquals(anonymous.getHeader("ETag"), signedIn.getHeader("ETag"));
+        assertEquals("no-cache, private", signedIn.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void uncachedPathsAndRedirectsPassThrough() throws Exception {
+        get("/api/v1/demo-controller", null);
+        get("/api/v1/demo-controller", null);
+        assertEquals(2, renders.get());
+
+        FilterChain redirectingChain = (request, response) -> {
+            renders.incrementAndGet();
+            ((HttpServletResponse) response).sendRedirect("/api/v1/auth2/login-page");
+        };
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/index-controller/index");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, redirectingChain);
+            assertEquals(302, response.getStatus());
+        }
+        assertEquals(4, renders.get());
+    }
+
+    private MockHttpServletResponse get(String path, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, renderingChain);
+        return response;
+    }
+}
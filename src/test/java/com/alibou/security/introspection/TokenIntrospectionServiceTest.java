@@ -0,0 +1,103 @@
+package com.alibou.security.introspection;
+
+import com.alibou.security.config.JwtKeyProperties;
+import com.alibou.security.config.JwtKeyRing;
+import com.alibou.security.config.JwtService;
+import com.alibou.security.config.VerifiedToken;
+import com.alibou.security.token.RevocationStore;
+import com.alibou.security.token.TokenDenylist;
+import com.alibou.security.user.Role;
+import com.alibou.security.user.SecurityUser;
+import com.alibou.security.user.UserPrincipal;
+import com.alibou.security.user.UserPrincipalCache;
+import com.alibou.security.user.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenIntrospectionServiceTest {
+
+    private static final String SECRET = "K38WZTfWhc8GA9scUTOmuhTUewpgdgMD9usj8Qk81ItmBRSTYGt6iFApr8E/zFvH";
+
+    private final UserRepository repository = mock(UserRepository.class);
+    private JwtService jwtService;
+    private TokenDenylist denylist;
+    private TokenIntrospectionService introspectionService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(new JwtKeyRing(SECRET, new JwtKeyProperties()), Duration.ofMinutes(15), 100);
+        denylist = new TokenDenylist(mock(RevocationStore.class), 1000);
+        // Порог 2 - пакет теста проверяется параллельно
+        introspectionService = new TokenIntrospectionService(jwtService, denylist,
+                new UserPrincipalCache(repository, Duration.ofMinutes(5), 100), new SimpleMeterRegistry(), 4, 2);
+        when(repository.findAllByEmailIn(anyCollection())).thenReturn(List.of(
+                user(1, "alice@mail.com", Role.USER),
+                user(2, "bob@mail.com", Role.USER, Role.ADMIN)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        introspectionService.shutdown();
+    }
+
+    @Test
+    void batchIsResolvedWithSingleUserQueryInRequestOrder() {
+        String alice = token(1, "alice@mail.com");
+        String bob = token(2, "bob@mail.com");
+        String deleted = token(3, "deleted@mail.com");
+        String revoked = token(1, "alice@mail.com");
+        VerifiedToken revokedToken = jwtService.verify(revoked);
+        denylist.revoke(revokedToken.id(), revokedToken.expiresAt());
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tokens.addAll(List.of(alice, bob, deleted, revoked, alice.substring(0, alice.length() - 2) + "xx",
+                    "not-a-token"));
+        }
+
+        List<TokenIntrospection> results = introspectionService.introspect(tokens);
+
+        assertEquals(tokens.size(), results.size());
+        for (int i = 0; i < tokens.size(); i += 6) {
+            assertEquals(new TokenIntrospection(IntrospectionStatus.ACTIVE, "alice@mail.com", List.of("USER"),
+                    jwtService.verify(alice).expiresAt()), results.get(i));
+            assertEquals(Set.of("USER", "ADMIN"), Set.copyOf(results.get(i + 1).authorities()));
+            assertEquals(IntrospectionStatus.USER_NOT_FOUND, results.get(i + 2).status());
+            assertEquals(List.of(), results.get(i + 2).authorities());
+            assertEquals(IntrospectionStatus.REVOKED, results.get(i + 3).status());
+            assertEquals(IntrospectionStatus.BAD_SIGNATURE, results.get(i + 4).status());
+            assertNull(results.get(i + 4).subject());
+            assertEquals(IntrospectionStatus.MALFORMED, results.get(i + 5).status());
+        }
+        // Все пользователи пакета - один запрос; повторный пакет обслуживается кэшем
+        introspectionService.introspect(List.of(alice, bob));
+        verify(repository, times(1)).findAllByEmailIn(anyCollection());
+    }
+
+    private String token(int id, String email) {
+        return jwtService.generateAccessToken(new UserPrincipal(id, email, null, Role.mask(Set.of(Role.USER)), 0));
+    }
+
+    private static SecurityUser user(int id, String email, Role... roles) {
+        return SecurityUser.builder()
+                .id(id)
+                .email(email)
+                .password("hash")
+                .roles(Set.of(roles))
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.alibou.security.invalidation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationBusTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private LoopbackInvalidationTransport transport;
+    private RecordingHandler received;
+    private InvalidationBus sender;
+    private InvalidationBus receiver;
+
+    @BeforeEach
+    void setUp() {
+        transport = new LoopbackInvalidationTransport();
+        received = new RecordingHandler();
+        // Периодическая отправка не мешает: пакеты отправляются явным flush()
+        sender = bus(new RecordingHandler());
+        receiver = bus(received);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdown();
+        receiver.shutdown();
+    }
+
+    private InvalidationBus bus(InvalidationHandler handler) {
+        InvalidationBus bus = new InvalidationBus(transport, List.of(handler), objectMapper,
+                new SimpleMeterRegistry(), Duration.ofHours(1), Duration.ofHours(1));
+        bus.start();
+        return bus;
+    }
+
+    @Test
+    void eventsForOneKeyAreCoalescedIntoOneBatch() {
+        sender.userChanged("user@mail.com", 1);
+        sender.userChanged("user@mail.com", 2);
+        sender.tokenRevoked("jti-1", Instant.ofEpochSecond(1_000));
+        sender.flush();
+
+        // Порядок событий разных ключей внутри пакета не задан
+        assertEquals(2, received.events.size());
+        assertEquals(Set.of("user user@mail.com 2", "token jti-1 1000"), Set.copyOf(received.events));
+        assertEquals(0, received.fullFlushes);
+    }
+
+    @Test
+    void ownEventsAreNotApplied() {
+        RecordingHandler own = new RecordingHandler();
+        InvalidationBus bus = bus(own);
+        bus.userChanged("user@mail.com", 1);
+        bus.flush();
+
+        assertTrue(own.events.isEmpty());
+        assertEquals(List.of("user user@mail.com 1"), received.events);
+        bus.shutdown();
+    }
+
+    @Test
+    void sequenceGapCausesFullFlush() throws Exception {
+        transport.send(objectMapper.writeValueAsString(new InvalidationBatch("other", 1,
+                List.of(InvalidationEvent.user("a@mail.com", 1)))));
+        transport.send(objectMapper.writeValueAsString(new InvalidationBatch("other", 3,
+                List.of(InvalidationEvent.user("b@mail.com", 1)))));
+        // Повторно доставленный старый пакет пропускается
+        transport.send(objectMapper.writeValueAsString(new InvalidationBatch("other", 2,
+                List.of(InvalidationEvent.user("c@mail.com", 1)))));
+
+        assertEquals(1, received.fullFlushes);
+        assertEquals(List.of("user a@mail.com 1", "user b@mail.com 1"), received.events);
+    }
+
+    @Test
+    void heartbeatRevealsLostLastBatch() throws Exception {
+        transport.send(objectMapper.writeValueAsString(new InvalidationBatch("other", 1,
+                List.of(InvalidationEvent.user("a@mail.com", 1)))));
+        // Пакет 2 потерян, новых событий нет - пропуск виден по пустому пакету
+        transport.send(objectMapper.writeValueAsString(new InvalidationBatch("other", 2, List.of())));
+        transport.send(objectMapper.writeValueAsString(new InvalidationBatch("other", 2, List.of())));
+
+        assertEquals(1, received.fullFlushes);
+        assertEquals(List.of("user a@mail.com 1"), received.events);
+    }
+
+    @Test
+    void failedBatchIsRetriedBeforeNewOnes() {
+        InvalidationBus flaky = new InvalidationBus(new InvalidationTransport() {
+            private boolean down = true;
+
+            @Override
+            public int maxPayloadLength() {
+                return transport.maxPayloadLength();
+            }
+
+            @Override
+            public void send(String payload) {
+                if (down) {
+                    down = false;
+                    throw new IllegalStateException("connection lost");
+                }
+                transport.send(payload);
+            }
+
+            @Override
+            public void start(Listener listener) {
+            }
+        }, List.of(), objectMapper, new SimpleMeterRegistry(), Duration.ofHours(1), Duration.ofHours(1));
+
+        flaky.userChanged("a@mail.com", 1);
+        flaky.flush();
+        flaky.userChanged("b@mail.com", 1);
+        flaky.flush();
+
+        assertEquals(List.of("user a@mail.com 1", "user b@mail.com 1"), received.events);
+        assertEquals(0, received.fullFlushes);
+        flaky.shutdown();
+    }
+
+    private static class RecordingHandler implements InvalidationHandler {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private int fullFlushes;
+
+        @Override
+        public void onUserChanged(String email, int securityVersion) {
+            events.add("user " + email + " " + securityVersion);
+        }
+
+        @Override
+        public void onTokenRevoked(String tokenId, Instant expiresAt) {
+            events.add("token " + tokenId + " " + expiresAt.getEpochSecond());
+        }
+
+        @Override
+        public void onFullFlush() {
+            fullFlushes++;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.alibou.security.token;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private RefreshTokenWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        // Фоновая запись не мешает: тест вызывает flush сам
+        writer = new RefreshTokenWriter(jdbcTemplate, mock(PlatformTransactionManager.class),
+                Duration.ofHours(1), 500, 2, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void marksAreKeptAndRetriedUntilWritten() {
+        when(jdbcTemplate.batchUpdate(startsWith("update"), anyList()))
+                .thenThrow(new QueryTimeoutException("database is down"))
+                .thenReturn(new int[]{1});
+
+        writer.markUsed("used-hash");
+        writer.revokeFamily("family");
+        writer.flush();
+
+        assertTrue(writer.isMarkedUsed("used-hash"));
+        assertTrue(writer.isFamilyRevoked("family"));
+        assertFalse(writer.markUsed("used-hash"));
+
+        writer.flush();
+
+        assertFalse(writer.isMarkedUsed("used-hash"));
+        assertFalse(writer.isFamilyRevoked("family"));
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("update refresh_tokens set used"), anyList());
+    }
+
+    @Test
+    void fullQueueRejectsNewTokensWithoutWritingOnCallerThread() {
+        writer.insert(token("a"));
+        writer.insert(token("b"));
+
+        assertThrows(RefreshTokenWriterOverloadedException.class, () -> writer.insert(token("c")));
+        assertNull(writer.pending("c"));
+        verifyNoInteractions(jdbcTemplate);
+
+        writer.flush();
+
+        verify(jdbcTemplate).batchUpdate(startsWith("insert"), anyList());
+        writer.insert(token("c"));
+        assertNotNull(writer.pending("c"));
+    }
+
+    @Test
+    void purgeRemovesExpiredTokensAndKeepsLiveOnes() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:refresh_tokens;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate database = new JdbcTemplate(dataSource);
+        database.execute("create table refresh_tokens (token_hash varchar(64) primary key, "
+                + "family_id varchar(36) not null, email varchar(255) not null, "
+                + "expires_at timestamp(6) with time zone not null, used boolean not null, revoked boolean not null)");
+        RefreshTokenWriter h2Writer = new RefreshTokenWriter(database, new DataSourceTransactionManager(dataSource),
+                Duration.ofHours(1), 500, 10, Duration.ofHours(1));
+        try {
+            h2Writer.insert(token("live", Instant.now().plus(Duration.ofDays(1))));
+            h2Writer.insert(token("used", Instant.now().plus(Duration.ofDays(1))));
+            h2Writer.insert(token("expired", Instant.now().minus(Duration.ofMinutes(1))));
+            h2Writer.markUsed("used");
+            h2Writer.flush();
+
+            assertEquals(1, h2Writer.purgeExpired());
+
+            // Использованный токен хранится до истечения: по нему распознается повторное предъявление
+            assertEquals(List.of("live", "used"), database.queryForList(
+                    "select token_hash from refresh_tokens order by token_hash", String.class));
+        } finally {
+            h2Writer.shutdown();
+            database.execute("drop table refresh_tokens");
+        }
+    }
+
+    private static RefreshToken token(String hash) {
+        return token(hash, Instant.now().plus(Duration.ofDays(1)));
+    }
+
+    private static RefreshToken token(String hash, Instant expiresAt) {
+        return RefreshToken.builder()
+                .tokenHash(hash)
+                .familyId("family")
+                .email("alice@mail.com")
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
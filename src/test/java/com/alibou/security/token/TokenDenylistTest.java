@@ -0,0 +1,52 @@
+package com.alibou.security.token;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenDenylistTest {
+
+    private RevocationStore store;
+    private TokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(RevocationStore.class);
+        when(store.loadActive(any())).thenReturn(Map.of("restored", Instant.now().plus(Duration.ofHours(1))));
+        denylist = new TokenDenylist(store, 1000);
+        denylist.load();
+    }
+
+    @Test
+    void revokedTokensAreReportedAndPersisted() {
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(1));
+
+        denylist.revoke("jti-1", expiresAt);
+
+        assertTrue(denylist.isRevoked("jti-1"));
+        assertTrue(denylist.isRevoked("restored"));
+        assertFalse(denylist.isRevoked("jti-2"));
+        assertFalse(denylist.isRevoked(null));
+        verify(store).onRevoked("jti-1", expiresAt);
+    }
+
+    @Test
+    void purgeDropsEntriesWhoseTokensExpired() {
+        denylist.add("expired", Instant.now().minusSeconds(1));
+        denylist.revoke("live", Instant.now().plus(Duration.ofHours(1)));
+
+        denylist.purgeExpired();
+
+        assertFalse(denylist.isRevoked("expired"));
+        assertTrue(denylist.isRevoked("live"));
+        assertEquals(2, denylist.size());
+        verify(store).purgeExpired(any());
+    }
+}
@@ -0,0 +1,93 @@
+package com.alibou.security.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:auth;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database=h2",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "auth.password.bcrypt.min-strength=4",
+        "auth.password.target-hash-time=1ms",
+        "auth.invalidation.transport=loopback"
+})
+class UserBulkImportServiceTest {
+
+    @Autowired
+    private UserBulkImportService importService;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void importsValidRowsAndReportsRejectedOnes() {
+        SecurityUser existing = repository.save(SecurityUser.builder()
+                .email("existing@import.test")
+                .password(passwordEncoder.encode("password"))
+                .roles(Set.of(Role.USER))
+                .build());
+        String csv = """
+                firstname,lastname,email,password
+                Anna,Petrova,anna@import.test,pa,ss
+                Oleg,Sidorov,existing@import.test,password
+                Anna,Again,anna@import.test,password
+                broken line
+                Ivan,Ivanov,ivan@import.test,password
+                """;
+
+        UserImportResult result = importService.importUsers(
+                UserImportReader.csv(new BufferedReader(new StringReader(csv))));
+
+        assertEquals(2, result.imported());
+        assertEquals(3, result.failed());
+        assertEquals(List.of(3L, 4L, 5L), result.errors().stream().map(UserImportResult.RowError::line).toList());
+
+        SecurityUser anna = repository.findByEmail("anna@import.test").orElseThrow();
+        assertEquals(Set.of(Role.USER), anna.getRoles());
+        // Пароль - последнее поле, поэтому запятая в нем сохраняется
+        assertTrue(passwordEncoder.matches("pa,ss", anna.getPassword()));
+        // Идентификаторы из последовательности не пересекаются с выданными через JPA
+        assertTrue(anna.getId() > existing.getId());
+    }
+
+    @Test
+    void rowByRowRetryKeepsIdsAssignedToFailedBatch() {
+        // Имя длиннее столбца отклоняет весь пакет, затем только свою строку
+        String csv = "firstname,lastname,email,password\n"
+                + "Petr,Petrov,petr@retry.test,password\n"
+                + "x".repeat(300) + ",Long,long@retry.test,password\n"
+                + "Olga,Orlova,olga@retry.test,password\n"
+                + "Egor,Egorov,egor@retry.test,password\n";
+
+        UserImportResult result = importService.importUsers(
+                UserImportReader.csv(new BufferedReader(new StringReader(csv))));
+
+        assertEquals(3, result.imported());
+        assertEquals(List.of(3L), result.errors().stream().map(UserImportResult.RowError::line).toList());
+        List<Integer> ids = List.of(
+                repository.findByEmail("petr@retry.test").orElseThrow().getId(),
+                repository.findByEmail("olga@retry.test").orElseThrow().getId(),
+                repository.findByEmail("egor@retry.test").orElseThrow().getId());
+        // Повтор по строкам использует идентификаторы пакета - все из одного блока последовательности
+        assertEquals(ids.get(0) + 2, ids.get(1));
+        assertEquals(ids.get(0) + 3, ids.get(2));
+    }
+}
@@ -0,0 +1,78 @@
+package com.alibou.security.user;
+
+import com.alibou.security.auth.AuthenticationRequest;
+import com.alibou.security.auth.AuthenticationService;
+import com.alibou.security.auth.RegisterRequest;
+import com.alibou.security.config.JwtService;
+import com.alibou.security.config.VerifiedToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:auth;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database=h2",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "auth.password.bcrypt.min-strength=4",
+        "auth.password.target-hash-time=1ms",
+        "auth.invalidation.transport=loopback"
+})
+class UserServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private UserPrincipalCache principalCache;
+
+    @Autowired
+    private SecurityVersionRegistry versionRegistry;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void roleChangeRevokesOldTokensOnlyAfterCommit() {
+        String email = "roles@example.com";
+        VerifiedToken oldToken = jwtService.verify(authenticationService.register(RegisterRequest.builder()
+                .firstname("Oleg")
+                .lastname("Orlov")
+                .email(email)
+                .password("secret")
+                .build()).getToken());
+        assertFalse(principalCache.findByEmail(email).orElseThrow().hasRole(Role.ADMIN));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userService.changeRoles(email, Set.of(Role.USER, Role.ADMIN));
+            // До фиксации кэш и реестр не меняются: иначе параллельный запрос вернул бы в кэш старую строку
+            assertTrue(versionRegistry.isCurrent(email, oldToken.securityVersion()));
+        });
+
+        assertFalse(versionRegistry.isCurrent(email, oldToken.securityVersion()));
+        assertTrue(principalCache.findByEmail(email).orElseThrow().hasRole(Role.ADMIN));
+        // Повторный вход выдает токен с новой версией, который реестр принимает
+        VerifiedToken newToken = jwtService.verify(authenticationService.authenticate(
+                new AuthenticationRequest(email, "secret"), "127.0.0.1").getToken());
+        assertEquals(oldToken.securityVersion() + 1, newToken.securityVersion());
+        assertTrue(versionRegistry.isCurrent(email, newToken.securityVersion()));
+        assertEquals(Set.of("USER", "ADMIN"), Set.copyOf(newToken.roles()));
+    }
+}